@@ -3,6 +3,7 @@ package com.guildwars;
 import com.guildwars.commands.GuildChatCommand;
 import com.guildwars.commands.GuildCommand;
 import com.guildwars.events.PlayerChatListener;
+import com.guildwars.events.GuildPresenceListener;
 import com.guildwars.events.GuildProtectionListener;
 import com.guildwars.events.InventoryClickListener;
 import com.guildwars.events.PlayerTerritoryListener;
@@ -10,11 +11,15 @@ import com.guildwars.events.GuildWarListener;
 import com.guildwars.gui.GuildMainGui;
 import com.guildwars.guild.GuildManager;
 import com.guildwars.guild.PerkManager;
+import com.guildwars.services.GuildChatService;
 import com.guildwars.services.HologramManager; // Added for explicit access
 import com.guildwars.storage.DatabaseManager;
 import org.bukkit.Bukkit; // For Bukkit.getScheduler()
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+import java.util.List;
+
 public class GuildWarsPlugin extends JavaPlugin {
 
     private GuildManager guildManager;
@@ -41,7 +46,8 @@ public class GuildWarsPlugin extends JavaPlugin {
         this.databaseManager = new DatabaseManager(this);
         this.databaseManager.initializeDatabase();
 
-        this.perkManager = new PerkManager(); 
+        this.perkManager = new PerkManager();
+        loadPerks();
         // GuildManager constructor now takes the plugin instance itself for config access if needed by sub-managers
         this.guildManager = new GuildManager(this, this.databaseManager, this.perkManager,
                 this.upkeepXpPerChunk,
@@ -59,20 +65,28 @@ public class GuildWarsPlugin extends JavaPlugin {
 
         this.guildMainGui = new GuildMainGui(this.guildManager);
 
-        getCommand("gc").setExecutor(new GuildChatCommand(this.guildManager));
+        GuildChatService chatService = new GuildChatService(this, this.guildManager);
+        GuildChatCommand chatCommand = new GuildChatCommand(this.guildManager, chatService);
+        getCommand("gc").setExecutor(chatCommand);
+        getCommand("oc").setExecutor(chatCommand);
+        getCommand("wc").setExecutor(chatCommand);
         getCommand("guild").setExecutor(new GuildCommand(this.guildManager, this.guildMainGui));
         getCommand("guild").setTabCompleter(new GuildCommand(this.guildManager, this.guildMainGui));
 
-        getServer().getPluginManager().registerEvents(new PlayerChatListener(this.guildManager), this);
+        getServer().getPluginManager().registerEvents(new GuildPresenceListener(this.guildManager), this);
+        guildManager.rebuildOnlineMembers(); // Players already online after a reload
+        getServer().getPluginManager().registerEvents(new PlayerChatListener(this.guildManager, chatService), this);
         getServer().getPluginManager().registerEvents(new GuildProtectionListener(this.guildManager), this);
         getServer().getPluginManager().registerEvents(new InventoryClickListener(this.guildManager, this.guildMainGui), this);
         getServer().getPluginManager().registerEvents(new PlayerTerritoryListener(this.guildManager), this);
         getServer().getPluginManager().registerEvents(new GuildWarListener(this.guildManager), this);
 
         scheduleUpkeepTask();
-        scheduleXpSiphonTask();
-        scheduleBarracksTask();
-        scheduleResourceSiloTask();
+        scheduleOutpostTask();
+        scheduleBankEvictionTask();
+        scheduleHasteAuraTask();
+        guildManager.getBankAuditLog().start();
+        guildManager.startHomeParticles();
 
         // Delayed task to initialize hologram manager after other plugins (like DecentHolograms) are fully loaded
         Bukkit.getScheduler().runTaskLater(this, () -> {
@@ -106,28 +120,45 @@ public class GuildWarsPlugin extends JavaPlugin {
         getLogger().info("Configuration loaded.");
     }
 
+    private void loadPerks() {
+        File perksFile = new File(getDataFolder(), "perks.yml");
+        if (!perksFile.exists()) saveResource("perks.yml", false);
+        List<String> errors = perkManager.loadFromFile(perksFile);
+        if (errors.isEmpty()) {
+            getLogger().info("Loaded perk tiers for " + perkManager.getDefinedLevelCount() + " levels from perks.yml.");
+            return;
+        }
+        errors.forEach(error -> getLogger().severe("perks.yml: " + error));
+        getLogger().severe("perks.yml has errors; using the built-in perk tiers.");
+    }
+
     private void scheduleUpkeepTask() {
+        if (guildManager.isStaggeredUpkeep()) {
+            // Each guild is billed in its own slot within the interval; the task only bills guilds that are due
+            this.getServer().getScheduler().runTaskTimer(this, guildManager::processDueUpkeep, 1200L, 1L);
+            getLogger().info("Staggered guild upkeep scheduled (Interval: " + upkeepIntervalHours + "h).");
+            return;
+        }
         long periodTicks = this.upkeepIntervalHours * 3600L * 20L;
-        this.getServer().getScheduler().runTaskTimerAsynchronously(this, guildManager::processAllGuildUpkeep, 1200L, periodTicks);
+        this.getServer().getScheduler().runTaskTimer(this, guildManager::processAllGuildUpkeep, 1200L, periodTicks);
         getLogger().info("Guild upkeep task scheduled (Interval: " + upkeepIntervalHours + "h).");
     }
 
-    private void scheduleXpSiphonTask() {
-        long periodTicks = this.xpSiphonIntervalHours * 3600L * 20L;
-        this.getServer().getScheduler().runTaskTimerAsynchronously(this, guildManager::processXpSiphons, 2400L, periodTicks);
-        getLogger().info("XP Siphon task scheduled (Interval: " + xpSiphonIntervalHours + "h).");
+    private void scheduleOutpostTask() {
+        // One scheduler for all outposts; it only wakes when the next outpost is due
+        guildManager.startOutpostScheduler(2400L);
+        getLogger().info("Outpost scheduler started (XP Siphon " + xpSiphonIntervalHours + "h, Barracks " + barracksIntervalHours + "h, Resource Silo " + resourceSiloIntervalHours + "h).");
     }
 
-    private void scheduleBarracksTask() {
-        long periodTicks = this.barracksIntervalHours * 3600L * 20L;
-        this.getServer().getScheduler().runTaskTimerAsynchronously(this, guildManager::processBarracks, 3600L, periodTicks);
-        getLogger().info("Barracks task scheduled (Interval: " + barracksIntervalHours + "h).");
+    private void scheduleBankEvictionTask() {
+        if (!guildManager.isLazyBankLoading()) return;
+        this.getServer().getScheduler().runTaskTimer(this, guildManager::evictIdleBanks, 1200L, 1200L);
+        getLogger().info("Guild bank eviction task scheduled (every 60s).");
     }
 
-    private void scheduleResourceSiloTask() {
-        long periodTicks = this.resourceSiloIntervalHours * 3600L * 20L;
-        this.getServer().getScheduler().runTaskTimerAsynchronously(this, () -> guildManager.processResourceSilos(this), 4800L, periodTicks);
-        getLogger().info("Resource Silo task scheduled (Interval: " + resourceSiloIntervalHours + "h).");
+    private void scheduleHasteAuraTask() {
+        guildManager.startHasteAura();
+        getLogger().info("Guild haste aura task scheduled (every " + getConfig().getInt("perks.haste-aura.interval-ticks", 40) + " ticks).");
     }
 
     @Override
@@ -138,6 +169,11 @@ public class GuildWarsPlugin extends JavaPlugin {
             // For now, DecentHolograms usually handles removal of its own holograms on shutdown/reload if persistent.
             // If we created temporary holograms, they should be explicitly removed.
         }
+        if (this.guildManager != null) {
+            this.guildManager.getOutpostScheduler().stop();
+            this.guildManager.getSharedBanks().saveAll(); // Open banks are not closed before plugins are disabled
+            this.guildManager.getBankAuditLog().flush(); // Before the write queue is drained
+        }
         if (this.databaseManager != null) {
             this.databaseManager.closeConnection();
         }
@@ -2,7 +2,7 @@ package com.guildwars.commands;
 
 import com.guildwars.guild.Guild;
 import com.guildwars.guild.GuildManager;
-import org.bukkit.Bukkit; // Uncommented
+import com.guildwars.services.GuildChatService;
 import org.bukkit.ChatColor; // Uncommented
 import org.bukkit.command.Command; // Uncommented
 import org.bukkit.command.CommandExecutor; // Uncommented
@@ -14,12 +14,15 @@ import java.util.UUID;
 // Note: We don't need to import the main plugin class (GuildWarsPlugin) here
 // if we are passing GuildManager directly in the constructor, which we are.
 
+// Handles /gc (guild), /oc (officers) and /wc (war). With no message, the command toggles the channel for normal chat.
 public class GuildChatCommand implements CommandExecutor { // Uncommented implements
 
     private GuildManager guildManager;
+    private final GuildChatService chatService;
 
-    public GuildChatCommand(GuildManager guildManager) {
+    public GuildChatCommand(GuildManager guildManager, GuildChatService chatService) {
         this.guildManager = guildManager;
+        this.chatService = chatService;
     }
 
     @Override // Uncommented @Override
@@ -39,33 +42,29 @@ public class GuildChatCommand implements CommandExecutor { // Uncommented implem
             return true;
         }
 
-        if (args.length == 0) {
-            player.sendMessage(ChatColor.YELLOW + "Usage: /gc <message>"); // Added some color
-            return true;
+        GuildChatService.Channel channel;
+        switch (command.getName().toLowerCase()) {
+            case "oc": channel = GuildChatService.Channel.OFFICER; break;
+            case "wc": channel = GuildChatService.Channel.WAR; break;
+            default: channel = GuildChatService.Channel.GUILD; break;
         }
 
-        String messageContent = String.join(" ", args);
-        // Using player.getDisplayName() includes nicknames from other plugins and is generally preferred.
-        // We'll also add a configurable guild chat color, e.g., green.
-        String guildChatFormat = playerGuild.getChatPrefix() + " " + ChatColor.GRAY + player.getDisplayName() + ChatColor.WHITE + ": " + messageContent;
-        String finalMessage = ChatColor.GREEN + guildChatFormat; // Overall guild chat color
-
-        // Optionally, you could allow '&' color codes in the message content itself:
-        // messageContent = ChatColor.translateAlternateColorCodes('&', messageContent);
-        // String finalMessage = ChatColor.GREEN + playerGuild.getChatPrefix() + " " + ChatColor.GRAY + player.getDisplayName() + ChatColor.WHITE + ": " + messageContent;
-
-
-        for (UUID memberUuid : playerGuild.getMembers()) {
-            Player guildMember = Bukkit.getPlayer(memberUuid);
-            if (guildMember != null && guildMember.isOnline()) {
-                guildMember.sendMessage(finalMessage);
+        if (args.length == 0) {
+            Guild.Role role = playerGuild.getRole(playerUuid);
+            if (role == null || !role.atLeast(channel.getMinimumRole())) {
+                player.sendMessage(ChatColor.RED + "Only officers can use officer chat.");
+                return true;
+            }
+            GuildChatService.Channel active = chatService.toggle(player, channel);
+            if (active == null) {
+                player.sendMessage(ChatColor.YELLOW + "Your chat now goes to public chat.");
+            } else {
+                player.sendMessage(ChatColor.GREEN + "Your chat now goes to " + active.name().toLowerCase() + " chat. Use /" + label + " again to switch back.");
             }
+            return true;
         }
-        
-        // Also, print to console for logging if desired
-        // Bukkit.getLogger().info("[GuildChat] " + finalMessage);
-
 
+        chatService.send(player, channel, String.join(" ", args));
         return true;
     }
 }
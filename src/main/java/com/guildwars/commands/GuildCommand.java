@@ -6,6 +6,9 @@ import com.guildwars.guild.PerkManager;
 import com.guildwars.guild.perks.GuildPerkType;
 import com.guildwars.guild.outposts.OutpostType;
 import com.guildwars.gui.GuildMainGui;
+import com.guildwars.services.BankAuditLog;
+import com.guildwars.services.ProfileCache;
+import com.guildwars.storage.WriteBehindQueue;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Chunk;
@@ -21,9 +24,11 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.util.StringUtil;
 
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +51,8 @@ public class GuildCommand implements CommandExecutor, TabCompleter {
         public ContributableItemInfo(Material material, int xpValue) { this.material = material; this.xpValue = xpValue; }
     }
 
+    private static final String ADMIN_PERMISSION = "guildwars.admin";
+
     public GuildCommand(GuildManager guildManager, GuildMainGui guildMainGui) {
         this.guildManager = guildManager;
         this.guildMainGui = guildMainGui;
@@ -83,6 +90,8 @@ public class GuildCommand implements CommandExecutor, TabCompleter {
             case "unclaim": handleUnclaimCommand(player, args); break;
             case "outpost": handleOutpostCommand(player, args); break;
             case "war": handleWarCommand(player, args); break;
+            case "bank": handleBankCommand(player, args); break;
+            case "admin": handleAdminCommand(player, args); break;
             case "help": // Fallthrough to default
             default:
                 sendHelpMessage(player);
@@ -111,7 +120,14 @@ public class GuildCommand implements CommandExecutor, TabCompleter {
         player.sendMessage(ChatColor.YELLOW + "/guild unclaim" + ChatColor.GRAY + " - Unclaims current chunk (Officer+).");
         player.sendMessage(ChatColor.YELLOW + "/guild outpost <create|destroy|status> [type]" + ChatColor.GRAY + " - Manages outposts (Officer+).");
         player.sendMessage(ChatColor.YELLOW + "/guild war <declare|peace|list|score|contest> [guildName]" + ChatColor.GRAY + " - Manages guild wars.");
+        player.sendMessage(ChatColor.YELLOW + "/guild bank [log [page]]" + ChatColor.GRAY + " - Opens the guild bank, or shows who deposited and withdrew what (Officer+).");
         player.sendMessage(ChatColor.YELLOW + "/guild help" + ChatColor.GRAY + " - Shows this help message.");
+        if (player.hasPermission(ADMIN_PERMISSION)) {
+            player.sendMessage(ChatColor.YELLOW + "/guild admin verify [repair]" + ChatColor.GRAY + " - Checks the member index for inconsistencies (Admin).");
+            player.sendMessage(ChatColor.YELLOW + "/guild admin dbstats" + ChatColor.GRAY + " - Shows database write queue statistics (Admin).");
+            player.sendMessage(ChatColor.YELLOW + "/guild admin reload [perks|loot]" + ChatColor.GRAY + " - Reloads perks.yml and/or the Resource Silo loot tables (Admin).");
+            player.sendMessage(ChatColor.YELLOW + "/guild admin bankgive <guild>" + ChatColor.GRAY + " - Puts a copy of your held item into a guild's bank (Admin).");
+        }
     }
 
     private void handleCreateCommand(Player player, String[] args) {
@@ -155,8 +171,7 @@ public class GuildCommand implements CommandExecutor, TabCompleter {
         if (guildManager.addPlayerToGuild(guildNameToJoin, player.getUniqueId())) {
             guildManager.removeInvite(player.getUniqueId());
             player.sendMessage(ChatColor.GREEN + "Joined guild: " + guildNameToJoin + "!");
-            guild.getMembers().stream().map(Bukkit::getPlayer).filter(p -> p != null && p.isOnline() && !p.equals(player))
-                   .forEach(p -> p.sendMessage(ChatColor.GOLD + player.getName() + ChatColor.GREEN + " has joined the guild!"));
+            guildManager.broadcastToGuild(guild, ChatColor.GOLD + player.getName() + ChatColor.GREEN + " has joined the guild!", Guild.Role.MEMBER, player);
         } else {
             player.sendMessage(ChatColor.RED + "Failed to join guild.");
         }
@@ -174,8 +189,7 @@ public class GuildCommand implements CommandExecutor, TabCompleter {
              // Guild might be null if disbanded, check before notifying
             Guild guildAfterLeave = guildManager.getGuild(currentGuild.getName());
             if (guildAfterLeave != null) { 
-                 guildAfterLeave.getMembers().stream().map(Bukkit::getPlayer).filter(p -> p != null && p.isOnline())
-                                 .forEach(p -> p.sendMessage(ChatColor.GOLD + player.getName() + ChatColor.YELLOW + " has left the guild."));
+                 guildManager.broadcastToGuild(guildAfterLeave, ChatColor.GOLD + player.getName() + ChatColor.YELLOW + " has left the guild.", Guild.Role.MEMBER);
             } else {
                  player.sendMessage(ChatColor.GRAY + "The guild was disbanded as you were the last member.");
             }
@@ -199,7 +213,7 @@ public class GuildCommand implements CommandExecutor, TabCompleter {
         if (guildManager.removePlayerFromGuild(kickerGuild.getName(), targetUuid)) {
             kicker.sendMessage(ChatColor.GREEN + args[1] + " kicked from the guild.");
             if (targetOfflinePlayer.isOnline()) targetOfflinePlayer.getPlayer().sendMessage(ChatColor.RED + "You were kicked from " + kickerGuild.getName());
-            kickerGuild.getMembers().stream().map(Bukkit::getPlayer).filter(p -> p != null && p.isOnline()).forEach(p -> p.sendMessage(ChatColor.YELLOW + args[1] + " was kicked by " + kicker.getName()));
+            guildManager.broadcastToGuild(kickerGuild, ChatColor.YELLOW + args[1] + " was kicked by " + kicker.getName(), Guild.Role.MEMBER);
         } else {
             kicker.sendMessage(ChatColor.RED + "Failed to kick " + args[1] + ".");
         }
@@ -273,8 +287,7 @@ public class GuildCommand implements CommandExecutor, TabCompleter {
         if (guild == null || !guild.getLeader().equals(player.getUniqueId())) { player.sendMessage(ChatColor.RED + "Only leader can transfer."); return; }
         Player newLeader = Bukkit.getPlayerExact(args[1]);
         if (newLeader == null || !guild.isMember(newLeader.getUniqueId()) || newLeader.equals(player)) { player.sendMessage(ChatColor.RED + "Invalid target player."); return; }
-        guildManager.getDbManager().updateGuildLeaderDB(guild.getName(), newLeader.getUniqueId()); // DB first
-        guild.setLeader(newLeader.getUniqueId()); // Then memory
+        guildManager.transferLeadership(guild, newLeader.getUniqueId());
         player.sendMessage(ChatColor.GREEN + "Leadership transferred to " + newLeader.getName());
         newLeader.sendMessage(ChatColor.GREEN + "You are the new leader of " + guild.getName());
     }
@@ -382,7 +395,7 @@ public class GuildCommand implements CommandExecutor, TabCompleter {
                 } else {
                     player.sendMessage(ChatColor.GOLD + "--- " + playerGuild.getName() + " - Active Wars ---");
                     for (String enemyName : wars) {
-                        Map<String, Integer> scores = guildManager.getDbManager().getWarScore(playerGuild.getName(), enemyName);
+                        Map<String, Integer> scores = guildManager.getWarScore(playerGuild.getName(), enemyName);
                         player.sendMessage(ChatColor.RED + " - vs " + ChatColor.DARK_RED + enemyName +
                                            ChatColor.YELLOW + " (Score: " + scores.getOrDefault(playerGuild.getName(), 0) + " - " + scores.getOrDefault(enemyName, 0) + ")");
                     }
@@ -401,6 +414,51 @@ public class GuildCommand implements CommandExecutor, TabCompleter {
         }
     }
 
+    private void handleBankCommand(Player player, String[] args) {
+        Guild guild = guildManager.getGuildByPlayer(player.getUniqueId());
+        if (guild == null) { player.sendMessage(ChatColor.RED + "You are not in a guild."); return; }
+        if (args.length < 2) {
+            if (guildMainGui != null) guildMainGui.getGuildBankGui().open(player);
+            else sendHelpMessage(player);
+            return;
+        }
+        if (!args[1].equalsIgnoreCase("log")) { player.sendMessage(ChatColor.RED + "Usage: /guild bank [log [page]]"); return; }
+        if (!guild.isOfficer(player.getUniqueId()) && !guild.getLeader().equals(player.getUniqueId())) {
+            player.sendMessage(ChatColor.RED + "Only officers can view the bank log."); return;
+        }
+        BankAuditLog auditLog = guildManager.getBankAuditLog();
+        if (!auditLog.isEnabled()) { player.sendMessage(ChatColor.RED + "The bank log is disabled on this server."); return; }
+        int page = 1;
+        if (args.length >= 3) {
+            try {
+                page = Math.max(1, Integer.parseInt(args[2]));
+            } catch (NumberFormatException e) {
+                player.sendMessage(ChatColor.RED + "Page must be a number."); return;
+            }
+        }
+        int requestedPage = page;
+        String guildName = guild.getName();
+        auditLog.queryAsync(player.getUniqueId(), guildName, page, entries -> {
+            if (!player.isOnline()) return;
+            if (entries.isEmpty()) {
+                player.sendMessage(ChatColor.YELLOW + (requestedPage == 1 ? "The guild bank log is empty." : "No entries on page " + requestedPage + "."));
+                return;
+            }
+            boolean hasNext = entries.size() > auditLog.getPageSize();
+            SimpleDateFormat timeFormat = new SimpleDateFormat("MM-dd HH:mm");
+            player.sendMessage(ChatColor.GOLD + "--- " + guildName + " - Bank Log (page " + requestedPage + ") ---");
+            for (BankAuditLog.Entry entry : entries.subList(0, Math.min(entries.size(), auditLog.getPageSize()))) {
+                ProfileCache.Profile profile = guildManager.getProfileCache().get(entry.player());
+                String name = (profile != null && profile.name() != null) ? profile.name() : entry.player().toString().substring(0, 8);
+                boolean deposit = entry.amount() > 0;
+                player.sendMessage(ChatColor.GRAY + timeFormat.format(new Date(entry.timestamp())) + " " + ChatColor.WHITE + name
+                        + (deposit ? ChatColor.GREEN + " deposited " : ChatColor.RED + " withdrew ") + ChatColor.WHITE + Math.abs(entry.amount())
+                        + " x " + entry.material().name() + ChatColor.GRAY + " (slot " + entry.slot() + ")");
+            }
+            if (hasNext) player.sendMessage(ChatColor.GRAY + "More: /guild bank log " + (requestedPage + 1));
+        });
+    }
+
     private void handleContestChunkCommand(Player player) {
         Guild attackerGuild = guildManager.getGuildByPlayer(player.getUniqueId());
         if (attackerGuild == null) { player.sendMessage(ChatColor.RED + "You are not in a guild."); return; }
@@ -411,7 +469,7 @@ public class GuildCommand implements CommandExecutor, TabCompleter {
         Guild defendingGuild = guildManager.getGuildOwningChunk(currentChunk.getWorld(), currentChunk.getX(), currentChunk.getZ());
         if (defendingGuild == null) { player.sendMessage(ChatColor.RED + "This chunk is unclaimed."); return; }
         if (defendingGuild.getName().equalsIgnoreCase(attackerGuild.getName())) { player.sendMessage(ChatColor.RED + "Cannot contest your own chunk."); return; }
-        if (!guildManager.isAtWarWith(attackerGuild.getName(), defendingGuild.getName())) {
+        if (!guildManager.isAtWarWith(attackerGuild, defendingGuild)) {
             player.sendMessage(ChatColor.RED + "Your guild is not at war with " + defendingGuild.getName() + "."); return;
         }
         if (guildManager.unclaimChunk(defendingGuild, currentChunk.getWorld(), currentChunk.getX(), currentChunk.getZ())) {
@@ -436,7 +494,7 @@ public class GuildCommand implements CommandExecutor, TabCompleter {
             if (currentWars.isEmpty()) { player.sendMessage(ChatColor.GREEN + "Your guild is not at war."); return; }
             player.sendMessage(ChatColor.GOLD + "Current War Scores for " + playerGuild.getName() + ":");
             for (String enemyName : currentWars) {
-                Map<String, Integer> scores = guildManager.getDbManager().getWarScore(playerGuild.getName(), enemyName);
+                Map<String, Integer> scores = guildManager.getWarScore(playerGuild.getName(), enemyName);
                 player.sendMessage(ChatColor.YELLOW + " vs " + ChatColor.GOLD + enemyName + ChatColor.YELLOW + ": " +
                                    ChatColor.GREEN + playerGuild.getName() + " (" + scores.getOrDefault(playerGuild.getName(), 0) + ")" +
                                    ChatColor.GRAY + " - " +
@@ -449,24 +507,97 @@ public class GuildCommand implements CommandExecutor, TabCompleter {
         String targetGuildName = args[2];
         Guild targetGuild = guildManager.getGuild(targetGuildName);
         if (targetGuild == null) { player.sendMessage(ChatColor.RED + "Guild '" + targetGuildName + "' not found."); return; }
-        if (!guildManager.isAtWarWith(playerGuild.getName(), targetGuild.getName())) {
+        if (!guildManager.isAtWarWith(playerGuild, targetGuild)) {
             player.sendMessage(ChatColor.YELLOW + "Your guild is not at war with " + targetGuild.getName() + "."); return; }
-        Map<String, Integer> scores = guildManager.getDbManager().getWarScore(playerGuild.getName(), targetGuild.getName());
+        Map<String, Integer> scores = guildManager.getWarScore(playerGuild.getName(), targetGuild.getName());
         player.sendMessage(ChatColor.GOLD + "War Score: " +
                            ChatColor.GREEN + playerGuild.getName() + " (" + scores.getOrDefault(playerGuild.getName(),0) + ")" +
                            ChatColor.GRAY + " vs " +
                            ChatColor.RED + targetGuild.getName() + " (" + scores.getOrDefault(targetGuild.getName(),0) + ")");
     }
 
+    private void handleAdminCommand(Player player, String[] args) {
+        if (!player.hasPermission(ADMIN_PERMISSION)) { player.sendMessage(ChatColor.RED + "You do not have permission to use admin commands."); return; }
+        if (args.length < 2) { player.sendMessage(ChatColor.RED + "Usage: /guild admin <verify|dbstats|reload|bankgive> [repair]"); return; }
+        switch (args[1].toLowerCase()) {
+            case "verify":
+                boolean repair = args.length > 2 && args[2].equalsIgnoreCase("repair");
+                List<String> problems = guildManager.verifyMemberIndex(repair);
+                if (problems.isEmpty()) {
+                    player.sendMessage(ChatColor.GREEN + "Member index is consistent.");
+                    return;
+                }
+                player.sendMessage(ChatColor.RED + "Found " + problems.size() + " member index problem(s):");
+                problems.stream().limit(10).forEach(p -> player.sendMessage(ChatColor.GRAY + " - " + p));
+                if (problems.size() > 10) player.sendMessage(ChatColor.GRAY + " ... and " + (problems.size() - 10) + " more (see console).");
+                problems.forEach(p -> guildManager.getPlugin().getLogger().warning("Member index: " + p));
+                player.sendMessage(repair ? ChatColor.GREEN + "Index rebuilt from guild member lists." : ChatColor.YELLOW + "Run /guild admin verify repair to rebuild the index.");
+                break;
+            case "dbstats":
+                WriteBehindQueue.Metrics m = guildManager.getDbManager().getWriteQueueMetrics();
+                player.sendMessage(ChatColor.GOLD + "--- Database Write Queue ---");
+                player.sendMessage(ChatColor.YELLOW + "Queue depth: " + ChatColor.WHITE + m.queueDepth() + ChatColor.GRAY + " (peak " + m.peakQueueDepth() + ")");
+                player.sendMessage(ChatColor.YELLOW + "Writes: " + ChatColor.WHITE + m.enqueued() + " queued, " + m.applied() + " applied, " + m.coalesced() + " coalesced, " + m.superseded() + " superseded");
+                player.sendMessage(ChatColor.YELLOW + "Flushes: " + ChatColor.WHITE + m.batches() + ChatColor.GRAY + String.format(" (last %.1fms, avg %.1fms, max %.1fms)", m.lastFlushMillis(), m.avgFlushMillis(), m.maxFlushMillis()));
+                player.sendMessage(ChatColor.YELLOW + "Failures: " + ChatColor.WHITE + m.failedBatches() + " failed batches, " + m.retries() + " retries, " + m.dropped() + " dropped");
+                player.sendMessage(ChatColor.YELLOW + "Outposts: " + ChatColor.WHITE + guildManager.getOutpostScheduler().getStats());
+                player.sendMessage(ChatColor.YELLOW + "Online members: " + ChatColor.WHITE + guildManager.getOnlineMemberRegistry().onlineCount() + " players in " + guildManager.getOnlineMemberRegistry().guildCount() + " guilds");
+                player.sendMessage(ChatColor.YELLOW + "Profiles: " + ChatColor.WHITE + guildManager.getProfileCache().getStats());
+                player.sendMessage(ChatColor.YELLOW + "Haste aura: " + ChatColor.WHITE + (guildManager.getHasteAuraService() != null ? guildManager.getHasteAuraService().getStats() : "not running"));
+                player.sendMessage(ChatColor.YELLOW + "Home particles: " + ChatColor.WHITE + (guildManager.getHomeParticleRenderer() != null ? guildManager.getHomeParticleRenderer().getStats() : "not running"));
+                player.sendMessage(ChatColor.YELLOW + "Bank cache: " + ChatColor.WHITE + (guildManager.isLazyBankLoading() ? guildManager.getBankCache().getStats() : "disabled (all banks preloaded)"));
+                player.sendMessage(ChatColor.YELLOW + "Shared banks: " + ChatColor.WHITE + guildManager.getSharedBanks().getStats());
+                player.sendMessage(ChatColor.YELLOW + "Bank log: " + ChatColor.WHITE + guildManager.getBankAuditLog().getStats());
+                break;
+            case "reload":
+                String what = args.length > 2 ? args[2].toLowerCase() : "all";
+                if (what.equals("all") || what.equals("loot")) {
+                    int tiers = guildManager.reloadSiloLootTable();
+                    player.sendMessage(ChatColor.GREEN + "Reloaded Resource Silo loot (" + tiers + " tier" + (tiers == 1 ? "" : "s") + ").");
+                }
+                if (what.equals("all") || what.equals("perks")) {
+                    List<String> errors = guildManager.reloadPerks();
+                    if (errors.isEmpty()) {
+                        player.sendMessage(ChatColor.GREEN + "Reloaded perks (" + guildManager.getPerkManager().getDefinedLevelCount() + " levels).");
+                    } else {
+                        player.sendMessage(ChatColor.RED + "perks.yml has " + errors.size() + " error(s); the current perks were kept:");
+                        errors.stream().limit(10).forEach(e -> player.sendMessage(ChatColor.GRAY + " - " + e));
+                        errors.forEach(e -> guildManager.getPlugin().getLogger().warning("perks.yml: " + e));
+                    }
+                }
+                if (!what.equals("all") && !what.equals("loot") && !what.equals("perks")) {
+                    player.sendMessage(ChatColor.RED + "Usage: /guild admin reload [perks|loot]");
+                }
+                break;
+            case "bankgive":
+                if (args.length < 3) { player.sendMessage(ChatColor.RED + "Usage: /guild admin bankgive <guild>"); return; }
+                Guild target = guildManager.getGuild(args[2]);
+                if (target == null) { player.sendMessage(ChatColor.RED + "Guild '" + args[2] + "' not found."); return; }
+                ItemStack held = player.getInventory().getItemInMainHand();
+                if (held == null || held.getType() == Material.AIR) { player.sendMessage(ChatColor.RED + "Hold the item to give."); return; }
+                Guild.BankDeposit deposit = guildManager.depositToBank(target, Collections.singletonList(held.clone()));
+                if (deposit == null) { player.sendMessage(ChatColor.RED + "That guild's bank could not be loaded."); return; }
+                int given = deposit.deposited().stream().mapToInt(ItemStack::getAmount).sum();
+                int overflow = deposit.overflow().stream().mapToInt(ItemStack::getAmount).sum();
+                player.sendMessage(ChatColor.GREEN + "Gave " + given + "x " + held.getType().name().toLowerCase().replace("_", " ") + " to " + target.getName() + "'s bank."
+                        + (overflow > 0 ? ChatColor.YELLOW + " " + overflow + " did not fit." : ""));
+                break;
+            default:
+                player.sendMessage(ChatColor.RED + "Unknown admin action. Usage: /guild admin <verify|dbstats|reload|bankgive> [repair]");
+                break;
+        }
+    }
+
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
         final List<String> completions = new ArrayList<>();
         if (!(sender instanceof Player)) return Collections.emptyList();
         Player player = (Player) sender;
-        List<String> mainSubCommands = Arrays.asList("create", "invite", "join", "leave", "kick", "promote", "demote", "info", "disband", "transfer", "list", "help", "sethome", "home", "claim", "unclaim", "outpost", "war");
+        List<String> mainSubCommands = Arrays.asList("create", "invite", "join", "leave", "kick", "promote", "demote", "info", "disband", "transfer", "list", "help", "sethome", "home", "claim", "unclaim", "outpost", "war", "bank");
 
         if (args.length == 1) {
             StringUtil.copyPartialMatches(args[0], mainSubCommands, completions);
+            if (player.hasPermission(ADMIN_PERMISSION)) StringUtil.copyPartialMatches(args[0], Collections.singletonList("admin"), completions);
         } else if (args.length >= 2) {
             String subCmd = args[0].toLowerCase();
             Guild playerGuild = guildManager.getGuildByPlayer(player.getUniqueId());
@@ -514,6 +645,19 @@ public class GuildCommand implements CommandExecutor, TabCompleter {
                         StringUtil.copyPartialMatches(args[2], potentialTargets, completions);
                     }
                     break;
+                case "bank":
+                    if (args.length == 2) StringUtil.copyPartialMatches(args[1], Collections.singletonList("log"), completions);
+                    break;
+                case "admin":
+                    if (!player.hasPermission(ADMIN_PERMISSION)) break;
+                    if (args.length == 2) {
+                        StringUtil.copyPartialMatches(args[1], Arrays.asList("verify", "dbstats", "reload", "bankgive"), completions);
+                    } else if (args.length == 3 && args[1].equalsIgnoreCase("verify")) {
+                        StringUtil.copyPartialMatches(args[2], Collections.singletonList("repair"), completions);
+                    } else if (args.length == 3 && args[1].equalsIgnoreCase("reload")) {
+                        StringUtil.copyPartialMatches(args[2], Arrays.asList("perks", "loot"), completions);
+                    }
+                    break;
             }
         }
         Collections.sort(completions);
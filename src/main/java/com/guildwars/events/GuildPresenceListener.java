@@ -0,0 +1,30 @@
+package com.guildwars.events;
+
+import com.guildwars.guild.GuildManager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+// Keeps the per-guild online member registry in step with logins and logouts
+public class GuildPresenceListener implements Listener {
+
+    private final GuildManager guildManager;
+
+    public GuildPresenceListener(GuildManager guildManager) {
+        this.guildManager = guildManager;
+    }
+
+    // Early, so other join handlers already see the player as an online member
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        guildManager.handlePlayerJoin(event.getPlayer());
+    }
+
+    // Late, so quit handlers can still message the player's guild
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        guildManager.handlePlayerQuit(event.getPlayer());
+    }
+}
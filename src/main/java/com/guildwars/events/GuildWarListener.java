@@ -42,7 +42,7 @@ public class GuildWarListener implements Listener {
         // Case 2: Players are in different guilds
         if (victimGuild != null && attackerGuild != null && !victimGuild.equals(attackerGuild)) {
             // Check if their guilds are at war
-            if (guildManager.isAtWarWith(victimGuild.getName(), attackerGuild.getName())) {
+            if (guildManager.isAtWarWith(victimGuild, attackerGuild)) {
                 // They are at war, allow the damage.
                 // Check if the damage will be fatal for war score
                 if (victim.getHealth() - event.getFinalDamage() <= 0) {
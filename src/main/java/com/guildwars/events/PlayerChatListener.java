@@ -2,18 +2,37 @@ package com.guildwars.events;
 
 import com.guildwars.guild.Guild;
 import com.guildwars.guild.GuildManager;
+import com.guildwars.services.GuildChatService;
 import org.bukkit.ChatColor; // For potential coloring of the prefix
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerChatEvent; // Using Paper's Async event
+import org.bukkit.event.player.PlayerQuitEvent;
 
 public class PlayerChatListener implements Listener {
 
     private GuildManager guildManager;
+    private final GuildChatService chatService;
 
-    public PlayerChatListener(GuildManager guildManager) {
+    public PlayerChatListener(GuildManager guildManager, GuildChatService chatService) {
         this.guildManager = guildManager;
+        this.chatService = chatService;
+    }
+
+    // Players who toggled a guild channel: their chat is sent there instead of to public chat
+    @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
+    public void onChannelChat(AsyncPlayerChatEvent event) {
+        GuildChatService.Channel channel = chatService.getToggledChannel(event.getPlayer().getUniqueId());
+        if (channel == null) return;
+        event.setCancelled(true);
+        chatService.send(event.getPlayer(), channel, event.getMessage());
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        chatService.forget(event.getPlayer().getUniqueId());
     }
 
     @EventHandler
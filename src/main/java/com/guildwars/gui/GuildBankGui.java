@@ -2,11 +2,11 @@ package com.guildwars.gui;
 
 import com.guildwars.guild.Guild;
 import com.guildwars.guild.GuildManager;
+import com.guildwars.guild.SharedBankInventories;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
-import org.bukkit.inventory.ItemStack;
 
 public class GuildBankGui {
 
@@ -27,25 +27,21 @@ public class GuildBankGui {
         // Check permissions (e.g., only members can open, specific ranks for withdrawal - handled in InventoryClickListener)
         // For now, any member can open and view.
 
-        Inventory bankGui = Bukkit.createInventory(player, Guild.BANK_SIZE, TITLE_PREFIX + ": " + guild.getName());
-        bankGui.setContents(guild.getBankContents()); // Load the items into the GUI
-
-        player.openInventory(bankGui);
-    }
-
-    // Method to be called when the GUI is closed to save its contents.
-    // The InventoryCloseEvent will be handled in InventoryClickListener or a dedicated listener.
-    // The caller (InventoryClickListener) is responsible for ensuring this is the correct inventory.
-    public void saveBankFromInventory(Guild guild, Inventory inventory) {
-        if (guild == null || inventory == null) { // Removed title check here
-            return; 
-        }
-        if (inventory.getSize() != Guild.BANK_SIZE) {
-             // Log error or handle mismatch
-            System.err.println("GuildBankGui: Inventory size mismatch for guild " + guild.getName() + ". Expected " + Guild.BANK_SIZE + " got " + inventory.getSize());
+        // Every member looks at the same inventory, so edits are never made to separate copies
+        SharedBankInventories sharedBanks = guildManager.getSharedBanks();
+        Inventory bankGui = sharedBanks.acquire(guild, () -> {
+            GuildGuiHolder holder = new GuildGuiHolder(GuildGuiHolder.Type.BANK, guild, Guild.BANK_SIZE);
+            Inventory inventory = Bukkit.createInventory(holder, Guild.BANK_SIZE, TITLE_PREFIX + ": " + guild.getName());
+            holder.setInventory(inventory);
+            return inventory;
+        });
+        if (bankGui == null) {
+            player.sendMessage(ChatColor.RED + "The guild bank could not be loaded. Please try again later.");
             return;
         }
-        guild.setBankContents(inventory.getContents());
-        guildManager.saveGuildBank(guild);
+
+        player.openInventory(bankGui);
+        // Another plugin may have cancelled the open, in which case no close event will release the viewer
+        if (player.getOpenInventory().getTopInventory() != bankGui) sharedBanks.release(guild, bankGui);
     }
 }
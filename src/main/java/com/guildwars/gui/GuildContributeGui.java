@@ -10,7 +10,9 @@ import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 public class GuildContributeGui {
 
@@ -18,8 +20,11 @@ public class GuildContributeGui {
     public static final String TITLE = ChatColor.DARK_AQUA + "Contribute Items to Guild";
     private static final int CONTRIBUTION_SLOTS = 18; // First 2 rows for item placement
 
-    public GuildContributeGui(GuildManager guildManager) {
+    private final GuildMainGui mainGui;
+
+    public GuildContributeGui(GuildManager guildManager, GuildMainGui mainGui) {
         this.guildManager = guildManager;
+        this.mainGui = mainGui;
     }
 
     public void open(Player player) {
@@ -29,7 +34,9 @@ public class GuildContributeGui {
             return;
         }
 
-        Inventory gui = Bukkit.createInventory(null, 27, TITLE + ": " + guild.getName());
+        GuildGuiHolder holder = new GuildGuiHolder(GuildGuiHolder.Type.CONTRIBUTE, guild, 27);
+        Inventory gui = Bukkit.createInventory(holder, 27, TITLE + ": " + guild.getName());
+        holder.setInventory(gui);
 
         // Informational Item
         ItemStack infoItem = new ItemStack(Material.PAPER);
@@ -52,6 +59,7 @@ public class GuildContributeGui {
             backButton.setItemMeta(backMeta);
         }
         gui.setItem(20, backButton); // Last row, left
+        holder.setAction(20, (p, g, h) -> mainGui.open(p));
 
         // Confirm Contribution Button
         ItemStack confirmButton = new ItemStack(Material.GREEN_STAINED_GLASS_PANE);
@@ -62,6 +70,7 @@ public class GuildContributeGui {
             confirmButton.setItemMeta(confirmMeta);
         }
         gui.setItem(24, confirmButton); // Last row, right
+        holder.setAction(24, (p, g, h) -> confirmContribution(p, g, h.getInventory()));
         
         // Fill empty slots in the last row with gray stained glass for aesthetics
         ItemStack fillerPane = new ItemStack(Material.GRAY_STAINED_GLASS_PANE);
@@ -79,6 +88,25 @@ public class GuildContributeGui {
         player.openInventory(gui);
     }
 
+    private void confirmContribution(Player player, Guild guild, Inventory gui) {
+        List<ItemStack> contributedItems = new ArrayList<>();
+        for (int i = 0; i < CONTRIBUTION_SLOTS; i++) {
+            ItemStack item = gui.getItem(i);
+            if (item != null && item.getType() != Material.AIR) {
+                contributedItems.add(item.clone()); // Clone to prevent issues if manager modifies them
+                gui.setItem(i, null); // Clear the item from GUI
+            }
+        }
+
+        if (contributedItems.isEmpty()) {
+            player.sendMessage(ChatColor.YELLOW + "You haven't placed any items to contribute!");
+        } else {
+            guildManager.contributeItems(player, guild, contributedItems);
+            // Messages to player are handled by contributeItems method.
+            player.closeInventory(); // Close after successful contribution
+        }
+    }
+
     public static int getContributionSlotsCount() {
         return CONTRIBUTION_SLOTS;
     }
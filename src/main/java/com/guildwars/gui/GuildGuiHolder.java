@@ -0,0 +1,76 @@
+package com.guildwars.gui;
+
+import com.guildwars.guild.Guild;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+
+/**
+ * Holder for every plugin GUI. It identifies the GUI, the guild it was opened for and the page, so click handling
+ * is a single instanceof check plus an array lookup by slot instead of matching titles and item names.
+ */
+public class GuildGuiHolder implements InventoryHolder {
+
+    public enum Type { MAIN, MEMBERS, CONTRIBUTE, PERKS, BANK }
+
+    /**
+     * What a button does. The guild is re-resolved from the holder's guild id at click time, and is null for a GUI
+     * opened without a guild.
+     */
+    @FunctionalInterface
+    public interface ClickAction {
+        void onClick(Player player, Guild guild, GuildGuiHolder holder);
+    }
+
+    public static final int NO_GUILD = -1;
+
+    private final Type type;
+    private final int guildId;
+    private final int page;
+    private final ClickAction[] actions;
+    private Inventory inventory;
+
+    public GuildGuiHolder(Type type, int guildId, int page, int size) {
+        this.type = type;
+        this.guildId = guildId;
+        this.page = page;
+        this.actions = new ClickAction[size];
+    }
+
+    public GuildGuiHolder(Type type, Guild guild, int size) {
+        this(type, guild != null ? guild.getId() : NO_GUILD, 1, size);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getGuildId() {
+        return guildId;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setAction(int slot, ClickAction action) {
+        actions[slot] = action;
+    }
+
+    /**
+     * @return The action for the slot, or null if the slot is not a button.
+     */
+    public ClickAction getAction(int slot) {
+        return (slot >= 0 && slot < actions.length) ? actions[slot] : null;
+    }
+
+    // Set right after Bukkit.createInventory, which needs the holder first
+    public void setInventory(Inventory inventory) {
+        this.inventory = inventory;
+    }
+
+    @Override
+    public Inventory getInventory() {
+        return inventory;
+    }
+}
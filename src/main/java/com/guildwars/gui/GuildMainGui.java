@@ -4,6 +4,7 @@ import com.guildwars.guild.Guild;
 import com.guildwars.guild.GuildManager;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
+import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
@@ -24,9 +25,9 @@ public class GuildMainGui {
 
     public GuildMainGui(GuildManager guildManager) {
         this.guildManager = guildManager;
-        this.guildMembersGui = new GuildMembersGui(guildManager);
-        this.guildContributeGui = new GuildContributeGui(guildManager);
-        this.guildPerksGui = new GuildPerksGui(guildManager);
+        this.guildMembersGui = new GuildMembersGui(guildManager, this);
+        this.guildContributeGui = new GuildContributeGui(guildManager, this);
+        this.guildPerksGui = new GuildPerksGui(guildManager, this);
         this.guildBankGui = new GuildBankGui(guildManager); // Added
     }
 
@@ -53,11 +54,13 @@ public class GuildMainGui {
     public void open(Player player) {
         Guild guild = guildManager.getGuildByPlayer(player.getUniqueId());
         String guiTitle = ChatColor.DARK_AQUA + "Guild Info";
+        GuildGuiHolder holder;
         Inventory gui;
 
         if (guild != null) {
             guiTitle += ": " + ChatColor.AQUA + guild.getName();
-            gui = Bukkit.createInventory(null, 27, guiTitle); // 3 rows
+            holder = new GuildGuiHolder(GuildGuiHolder.Type.MAIN, guild, 27);
+            gui = Bukkit.createInventory(holder, 27, guiTitle); // 3 rows
 
             // Guild Name & Level Info Item
             ItemStack infoItem = new ItemStack(Material.BOOK);
@@ -83,6 +86,7 @@ public class GuildMainGui {
                 membersButton.setItemMeta(membersMeta);
             }
             gui.setItem(11, membersButton);
+            holder.setAction(11, (p, g, h) -> guildMembersGui.open(p, g, 1));
 
             // Contribute Button
             ItemStack contributeButton = new ItemStack(Material.EMERALD);
@@ -93,6 +97,7 @@ public class GuildMainGui {
                 contributeButton.setItemMeta(contributeMeta);
             }
             gui.setItem(13, contributeButton); 
+            holder.setAction(13, (p, g, h) -> guildContributeGui.open(p));
 
             // Guild Home Button
             ItemStack homeButton = new ItemStack(Material.COMPASS);
@@ -111,6 +116,7 @@ public class GuildMainGui {
                 homeButton.setItemMeta(homeMeta);
             }
             gui.setItem(15, homeButton); 
+            holder.setAction(15, (p, g, h) -> teleportHome(p, g));
 
             // Guild Perks Button
             ItemStack perksButton = new ItemStack(Material.NETHER_STAR);
@@ -129,6 +135,7 @@ public class GuildMainGui {
             // Current slots taken are 4, 11, 13, 15.
             // Let's place it at slot 22 (center of last row) to balance things out or an earlier free one like 12.
             gui.setItem(22, perksButton); // Center of the third row
+            holder.setAction(22, (p, g, h) -> guildPerksGui.open(p, g));
 
             // Guild Bank Button
             ItemStack bankButton = new ItemStack(Material.CHEST);
@@ -141,9 +148,11 @@ public class GuildMainGui {
             // Let's place this next to Perks, maybe slot 20 or 24, or if 22 is center, then 21 or 23.
             // Slots used: 4, 11, 13, 15, 22. Try slot 20.
             gui.setItem(20, bankButton); // Third row, towards left from center
+            holder.setAction(20, (p, g, h) -> guildBankGui.open(p));
 
         } else {
-            gui = Bukkit.createInventory(null, 9, guiTitle);
+            holder = new GuildGuiHolder(GuildGuiHolder.Type.MAIN, null, 9);
+            gui = Bukkit.createInventory(holder, 9, guiTitle);
             ItemStack noGuildItem = new ItemStack(Material.BARRIER);
             ItemMeta noGuildMeta = noGuildItem.getItemMeta();
             if (noGuildMeta != null) {
@@ -151,7 +160,24 @@ public class GuildMainGui {
                 noGuildItem.setItemMeta(noGuildMeta);
             }
             gui.setItem(4, noGuildItem); 
+            holder.setAction(4, (p, g, h) -> p.closeInventory()); // Just close if they click the 'not in guild' item
         }
+        holder.setInventory(gui);
         player.openInventory(gui);
     }
+
+    private void teleportHome(Player player, Guild guild) {
+        player.closeInventory();
+        if (!guildManager.canGuildSetHome(guild)) {
+            player.sendMessage(ChatColor.RED + "Your guild has not unlocked the Guild Home perk yet.");
+            return;
+        }
+        Location homeLoc = guild.getGuildHomeLocation();
+        if (homeLoc != null) {
+            player.teleport(homeLoc);
+            player.sendMessage(ChatColor.GREEN + "Teleporting to guild home...");
+        } else {
+            player.sendMessage(ChatColor.RED + "Guild home is not set. Officers use /guild sethome.");
+        }
+    }
 }
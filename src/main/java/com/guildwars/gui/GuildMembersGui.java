@@ -2,10 +2,10 @@ package com.guildwars.gui;
 
 import com.guildwars.guild.Guild;
 import com.guildwars.guild.GuildManager;
+import com.guildwars.services.ProfileCache;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
@@ -15,14 +15,17 @@ import org.bukkit.inventory.meta.SkullMeta;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class GuildMembersGui {
 
     private GuildManager guildManager;
+    private final GuildMainGui mainGui;
 
-    public GuildMembersGui(GuildManager guildManager) {
+    public GuildMembersGui(GuildManager guildManager, GuildMainGui mainGui) {
         this.guildManager = guildManager;
+        this.mainGui = mainGui;
     }
 
     public void open(Player player, Guild guild, int page) {
@@ -31,43 +34,25 @@ public class GuildMembersGui {
             return;
         }
 
-        List<UUID> memberUuids = new ArrayList<>(guild.getMembers());
+        List<UUID> memberUuids = new ArrayList<>(guild.getMembers()); // Snapshot in join order so pages stay stable
         int membersPerPage = 45; // 5 rows for members, 9 slots per row
         int totalPages = (int) Math.ceil((double) memberUuids.size() / membersPerPage);
         if (page < 1) page = 1;
         if (page > totalPages && totalPages > 0) page = totalPages;
 
         String guiTitle = ChatColor.DARK_AQUA + "Guild Members - Page " + page + "/" + totalPages;
-        Inventory gui = Bukkit.createInventory(null, 54, guiTitle); // 6 rows
+        GuildGuiHolder holder = new GuildGuiHolder(GuildGuiHolder.Type.MEMBERS, guild.getId(), page, 54);
+        Inventory gui = Bukkit.createInventory(holder, 54, guiTitle); // 6 rows
+        holder.setInventory(gui);
 
         int startIndex = (page - 1) * membersPerPage;
         int endIndex = Math.min(startIndex + membersPerPage, memberUuids.size());
 
-        for (int i = startIndex; i < endIndex; i++) {
-            UUID memberUuid = memberUuids.get(i);
-            OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(memberUuid);
-            String playerName = offlinePlayer.getName() != null ? offlinePlayer.getName() : memberUuid.toString();
-
-            ItemStack memberHead = new ItemStack(Material.PLAYER_HEAD);
-            SkullMeta headMeta = (SkullMeta) memberHead.getItemMeta();
-
-            if (headMeta != null) {
-                headMeta.setOwningPlayer(offlinePlayer);
-                headMeta.setDisplayName(ChatColor.GREEN + playerName);
-                List<String> lore = new ArrayList<>();
-                // You can add more info here, e.g., rank, last online
-                if (guild.getLeader().equals(memberUuid)) { // Changed getOwner() to getLeader()
-                    lore.add(ChatColor.GOLD + "Guild Leader");
-                } else if (guild.getOfficers().contains(memberUuid)) {
-                    lore.add(ChatColor.YELLOW + "Officer");
-                } else {
-                    lore.add(ChatColor.AQUA + "Member");
-                }
-                // Example: lore.add(ChatColor.GRAY + "Last Online: " + (offlinePlayer.isOnline() ? ChatColor.GREEN + "Online" : "Offline - TODO"));
-                headMeta.setLore(lore);
-                memberHead.setItemMeta(headMeta);
-            }
-            gui.addItem(memberHead); // Add to next available slot, up to 45
+        // Heads come from the profile cache only, so opening never waits on a profile lookup. Members without a
+        // cached skin show a plain head until the background lookup below fills it in.
+        List<UUID> pageUuids = memberUuids.subList(startIndex, endIndex);
+        for (int slot = 0; slot < pageUuids.size(); slot++) {
+            gui.setItem(slot, createMemberHead(guild, pageUuids.get(slot)));
         }
 
         // Navigation buttons
@@ -80,6 +65,7 @@ public class GuildMembersGui {
                 previousButton.setItemMeta(prevMeta);
             }
             gui.setItem(48, previousButton); // Bottom row, middle-left
+            holder.setAction(48, (p, g, h) -> open(p, g, h.getPage() - 1));
         }
 
         if (page < totalPages) {
@@ -91,6 +77,7 @@ public class GuildMembersGui {
                 nextButton.setItemMeta(nextMeta);
             }
             gui.setItem(50, nextButton); // Bottom row, middle-right
+            holder.setAction(50, (p, g, h) -> open(p, g, h.getPage() + 1));
         }
         
         ItemStack backButton = new ItemStack(Material.BARRIER);
@@ -100,7 +87,56 @@ public class GuildMembersGui {
             backButton.setItemMeta(backMeta);
         }
         gui.setItem(49, backButton); // Bottom center
+        holder.setAction(49, (p, g, h) -> mainGui.open(p));
 
         player.openInventory(gui);
+
+        List<UUID> shown = new ArrayList<>(pageUuids);
+        guildManager.getProfileCache().refreshAsync(shown, updated -> {
+            if (!player.isOnline() || player.getOpenInventory().getTopInventory().getHolder(false) != holder) return; // Closed or moved on
+            for (UUID memberUuid : updated) {
+                int slot = shown.indexOf(memberUuid);
+                if (slot >= 0) gui.setItem(slot, createMemberHead(guild, memberUuid));
+            }
+        });
+    }
+
+    private ItemStack createMemberHead(Guild guild, UUID memberUuid) {
+        ProfileCache profiles = guildManager.getProfileCache();
+        ProfileCache.Profile profile = profiles.get(memberUuid);
+        String playerName = (profile != null && profile.name() != null) ? profile.name() : memberUuid.toString();
+
+        ItemStack memberHead = new ItemStack(Material.PLAYER_HEAD);
+        SkullMeta headMeta = (SkullMeta) memberHead.getItemMeta();
+        if (headMeta == null) return memberHead;
+
+        profiles.applyTo(headMeta, memberUuid);
+        headMeta.setDisplayName(ChatColor.GREEN + playerName);
+        List<String> lore = new ArrayList<>();
+        if (guild.getLeader().equals(memberUuid)) {
+            lore.add(ChatColor.GOLD + "Guild Leader");
+        } else if (guild.isOfficer(memberUuid)) {
+            lore.add(ChatColor.YELLOW + "Officer");
+        } else {
+            lore.add(ChatColor.AQUA + "Member");
+        }
+        if (profiles.isOnline(memberUuid)) {
+            lore.add(ChatColor.GREEN + "Online");
+        } else {
+            long lastSeen = profile != null ? profile.lastSeen() : 0L;
+            lore.add(ChatColor.GRAY + "Last seen: " + (lastSeen > 0 ? formatAgo(System.currentTimeMillis() - lastSeen) : "unknown"));
+        }
+        headMeta.setLore(lore);
+        memberHead.setItemMeta(headMeta);
+        return memberHead;
+    }
+
+    private static String formatAgo(long millis) {
+        long minutes = TimeUnit.MILLISECONDS.toMinutes(Math.max(0L, millis));
+        if (minutes < 1) return "just now";
+        if (minutes < 60) return minutes + "m ago";
+        long hours = minutes / 60;
+        if (hours < 24) return hours + "h ago";
+        return (hours / 24) + "d ago";
     }
 }
@@ -20,8 +20,11 @@ public class GuildPerksGui {
     private final GuildManager guildManager; // Contains PerkManager
     public static final String TITLE = ChatColor.DARK_PURPLE + "Guild Perks";
 
-    public GuildPerksGui(GuildManager guildManager) {
+    private final GuildMainGui mainGui;
+
+    public GuildPerksGui(GuildManager guildManager, GuildMainGui mainGui) {
         this.guildManager = guildManager;
+        this.mainGui = mainGui;
     }
 
     public void open(Player player, Guild guild) {
@@ -35,7 +38,9 @@ public class GuildPerksGui {
             return;
         }
 
-        Inventory gui = Bukkit.createInventory(null, 54, TITLE + ": " + guild.getName());
+        GuildGuiHolder holder = new GuildGuiHolder(GuildGuiHolder.Type.PERKS, guild, 54);
+        Inventory gui = Bukkit.createInventory(holder, 54, TITLE + ": " + guild.getName());
+        holder.setInventory(gui);
         int slot = 0;
 
         for (GuildPerkType perkType : GuildPerkType.values()) {
@@ -82,6 +87,7 @@ public class GuildPerksGui {
             backButton.setItemMeta(backMeta);
         }
         gui.setItem(49, backButton); // Bottom center
+        holder.setAction(49, (p, g, h) -> mainGui.open(p)); // Other items are purely informational
 
         player.openInventory(gui);
     }
@@ -120,10 +126,10 @@ public class GuildPerksGui {
                 return ChatColor.GRAY + "Increases the maximum number of members your guild can have.";
             case ALLOW_GUILD_SETHOME:
                 return ChatColor.GRAY + "Allows guild officers to set a guild home teleport point.";
-            case GUILD_HOME_PARTICLE: // Example description
-                return ChatColor.GRAY + "Adds a particle effect to the guild home teleport (if set).";
-            case PASSIVE_HASTE_AURA: // Example description
-                return ChatColor.GRAY + "Grants a passive Haste effect to members near claimed land (Not Implemented).";
+            case GUILD_HOME_PARTICLE:
+                return ChatColor.GRAY + "Shows a particle effect around the guild home (if set).";
+            case PASSIVE_HASTE_AURA:
+                return ChatColor.GRAY + "Grants a passive Haste effect to members inside your guild's claimed land.";
             case MAX_CLAIMED_CHUNKS_INCREASE:
                 return ChatColor.GRAY + "Increases the maximum number of land chunks your guild can claim.";
             default:
@@ -143,7 +149,7 @@ public class GuildPerksGui {
                 return particle != null ? "Effect: " + particle : "No particle effect set.";
             case PASSIVE_HASTE_AURA:
                 int amplifier = perkManager.getIntPerkValue(guild.getLevel(), perkType);
-                return "Haste " + (amplifier + 1) + " (Not Implemented)";
+                return "Haste " + (amplifier + 1) + " in guild territory";
             case MAX_CLAIMED_CHUNKS_INCREASE:
                  int bonusChunks = perkManager.getAccumulatedIntValue(guild.getLevel(), perkType);
                  int baseChunks = GuildManager.BASE_MAX_CLAIMS; // Assuming BASE_MAX_CLAIMS is accessible or known
@@ -1,18 +1,24 @@
 package com.guildwars.guild;
 
 import com.guildwars.guild.outposts.OutpostType; // Added for Outposts
+import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack; // Added for Guild Bank
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap; // Added for claimedChunks
 
 public class Guild {
 
+    public static final int UNASSIGNED_ID = -1;
+
     private String name;
+    private transient int id = UNASSIGNED_ID; // Compact runtime id, assigned by GuildManager; never persisted
     private UUID leader;
-    private List<UUID> members;
-    private List<UUID> officers;
+    // Insertion-ordered sets: O(1) membership checks with a stable order for paginated GUIs
+    private Set<UUID> members;
+    private Set<UUID> officers;
     private int level;
     private long currentXp;
+    private long lastUpkeepMillis; // When territory upkeep was last billed (epoch millis; 0 = never)
 
     // Guild Home location fields
     private String homeWorldName;
@@ -29,18 +35,28 @@ public class Guild {
     // Wrapper for outpost info including next tick time
     public record ActiveOutpostInfo(LocationData location, long nextTickTimestamp) {}
 
+    // Ranks in ascending order, so a role filter is a single ordinal comparison
+    public enum Role {
+        MEMBER, OFFICER, LEADER;
+
+        public boolean atLeast(Role minimum) {
+            return ordinal() >= minimum.ordinal();
+        }
+    }
+
     // Outpost Information (Stores precise location of the outpost's core block and next tick time)
     private Map<OutpostType, ActiveOutpostInfo> activeOutposts; 
 
     public Guild(String name, UUID leader) {
         this.name = name;
         this.leader = leader;
-        this.members = new ArrayList<>();
-        this.officers = new ArrayList<>();
+        this.members = new LinkedHashSet<>();
+        this.officers = new LinkedHashSet<>();
         this.members.add(leader);
         this.officers.add(leader);
         this.level = 1;
         this.currentXp = 0;
+        this.lastUpkeepMillis = System.currentTimeMillis(); // First bill falls in the next upkeep interval
         this.claimedChunks = ConcurrentHashMap.newKeySet(); // Initialize
         this.bankContents = new ItemStack[BANK_SIZE]; // Initialize bank
         this.activeOutposts = new HashMap<>(); // Initialize outposts map
@@ -50,14 +66,14 @@ public class Guild {
     public Guild(String name, UUID leader, int level, long currentXp) {
         this.name = name;
         this.leader = leader;
-        this.members = new ArrayList<>(); // Members will be populated separately
-        this.officers = new ArrayList<>(); // Officers will be populated separately
+        this.members = new LinkedHashSet<>(); // Members will be populated separately
+        this.officers = new LinkedHashSet<>(); // Officers will be populated separately
         // Leader is added to members/officers by default when members are populated, or by GuildManager explicitly.
         this.level = level;
         this.currentXp = currentXp;
         // home will be set separately by DB loader
         this.claimedChunks = ConcurrentHashMap.newKeySet(); // Initialize
-        this.bankContents = new ItemStack[BANK_SIZE]; // Initialize bank for loaded guild
+        this.bankContents = null; // Loaded on first use through GuildBankCache
         this.activeOutposts = new HashMap<>(); // Initialize outposts map
     }
 
@@ -66,16 +82,25 @@ public class Guild {
         return name;
     }
 
+    public int getId() {
+        return id;
+    }
+
+    void setId(int id) { // Only GuildManager hands out ids
+        this.id = id;
+    }
+
     public UUID getLeader() {
         return leader;
     }
 
-    public List<UUID> getMembers() {
-        return members;
+    // Read-only views in join order; mutate through addMember/removeMember/promoteOfficer/demoteOfficer
+    public Set<UUID> getMembers() {
+        return Collections.unmodifiableSet(members);
     }
 
-    public List<UUID> getOfficers() {
-        return officers;
+    public Set<UUID> getOfficers() {
+        return Collections.unmodifiableSet(officers);
     }
 
     // Chat Prefix
@@ -86,11 +111,7 @@ public class Guild {
     // Member management methods
 
     public boolean addMember(UUID playerUuid) {
-        if (!members.contains(playerUuid)) {
-            members.add(playerUuid);
-            return true; // Successfully added
-        }
-        return false; // Already a member
+        return members.add(playerUuid); // False if already a member
     }
 
     public boolean removeMember(UUID playerUuid) {
@@ -98,17 +119,13 @@ public class Guild {
             return false; // Cannot remove the leader
         }
         boolean wasMember = members.remove(playerUuid);
-        boolean wasOfficer = officers.remove(playerUuid); // Also remove from officers if they were one
+        officers.remove(playerUuid); // Also remove from officers if they were one
         return wasMember; // Return true if they were a member and removed
     }
 
     public boolean promoteOfficer(UUID playerUuid) {
         if (playerUuid.equals(this.leader)) return false; // Cannot promote the leader (they are already effectively above officer)
-        if (members.contains(playerUuid) && !officers.contains(playerUuid)) {
-            officers.add(playerUuid);
-            return true; // Successfully promoted
-        }
-        return false; // Not a member or already an officer
+        return members.contains(playerUuid) && officers.add(playerUuid); // False if not a member or already an officer
     }
 
     public boolean demoteOfficer(UUID playerUuid) {
@@ -126,6 +143,15 @@ public class Guild {
         return officers.contains(playerUuid);
     }
 
+    /**
+     * @return The player's rank in this guild, or null if they are not a member.
+     */
+    public Role getRole(UUID playerUuid) {
+        if (playerUuid.equals(leader)) return Role.LEADER;
+        if (officers.contains(playerUuid)) return Role.OFFICER;
+        return members.contains(playerUuid) ? Role.MEMBER : null;
+    }
+
     // Method to set a new leader
     public void setLeader(UUID newLeaderUuid) {
         if (newLeaderUuid == null || !members.contains(newLeaderUuid)) {
@@ -134,17 +160,10 @@ public class Guild {
             return; 
         }
         
-        // Ensure the old leader is at least an officer if they are not the new leader
-        if (!this.leader.equals(newLeaderUuid) && !officers.contains(this.leader)) {
-            officers.add(this.leader);
-        }
-
+        // The old leader stays on as an officer, and the new leader is always an officer (set adds are no-ops if present)
+        officers.add(this.leader);
         this.leader = newLeaderUuid;
-
-        // Ensure the new leader is also an officer
-        if (!officers.contains(newLeaderUuid)) {
-            officers.add(newLeaderUuid);
-        }
+        officers.add(newLeaderUuid);
     }
 
     // XP and Leveling
@@ -197,6 +216,14 @@ public class Guild {
         return leveledUp;
     }
 
+    public long getLastUpkeepMillis() {
+        return lastUpkeepMillis;
+    }
+
+    public void setLastUpkeepMillis(long lastUpkeepMillis) {
+        this.lastUpkeepMillis = lastUpkeepMillis;
+    }
+
     /**
      * Attempts to pay a specified amount of XP for upkeep.
      * Does not handle de-leveling; it's a direct XP deduction if possible.
@@ -291,6 +318,15 @@ public class Guild {
     }
 
     // --- Guild Bank Methods ---
+    // Contents are null while the bank is not loaded; go through GuildManager.getBankContents to load on demand
+    public boolean isBankLoaded() {
+        return bankContents != null;
+    }
+
+    void unloadBank() {
+        this.bankContents = null;
+    }
+
     public ItemStack[] getBankContents() {
         return this.bankContents;
     }
@@ -305,13 +341,88 @@ public class Guild {
     }
 
     public ItemStack getBankItem(int slot) {
-        if (slot >= 0 && slot < BANK_SIZE) {
+        if (bankContents != null && slot >= 0 && slot < BANK_SIZE) {
             return bankContents[slot];
         }
         return null;
     }
 
+    /**
+     * Result of {@link #depositToBank}: what went in, what did not fit, and one bit per bank slot that changed.
+     */
+    public record BankDeposit(List<ItemStack> deposited, List<ItemStack> overflow, long dirtySlots) {
+        public boolean changed() {
+            return dirtySlots != 0;
+        }
+    }
+
+    /**
+     * Deposits items into the loaded bank, topping up matching partial stacks first and then filling empty slots
+     * in order. The bank is scanned once to index partial stacks by material and collect the empty slots,
+     * so each item only compares against stacks of its own material. Amounts above the max stack size are split.
+     * Input stacks are not modified.
+     */
+    public BankDeposit depositToBank(Collection<ItemStack> items) {
+        if (bankContents == null) throw new IllegalStateException("Bank of guild " + name + " is not loaded");
+        Map<Material, List<Integer>> partialSlots = new EnumMap<>(Material.class);
+        int[] freeSlots = new int[BANK_SIZE];
+        int freeCount = 0;
+        for (int i = 0; i < BANK_SIZE; i++) {
+            ItemStack stack = bankContents[i];
+            if (stack == null || stack.getType() == Material.AIR) {
+                freeSlots[freeCount++] = i;
+            } else if (stack.getAmount() < stack.getMaxStackSize()) {
+                partialSlots.computeIfAbsent(stack.getType(), k -> new ArrayList<>()).add(i);
+            }
+        }
+        int freeCursor = 0;
+        long dirtySlots = 0; // BANK_SIZE fits in one long
+        List<ItemStack> deposited = new ArrayList<>();
+        List<ItemStack> overflow = new ArrayList<>();
+        for (ItemStack item : items) {
+            if (item == null || item.getType() == Material.AIR || item.getAmount() <= 0) continue;
+            int remaining = item.getAmount();
+            List<Integer> partials = partialSlots.get(item.getType());
+            if (partials != null) {
+                Iterator<Integer> it = partials.iterator();
+                while (remaining > 0 && it.hasNext()) {
+                    int slot = it.next();
+                    ItemStack stack = bankContents[slot];
+                    if (!stack.isSimilar(item)) continue;
+                    int add = Math.min(remaining, stack.getMaxStackSize() - stack.getAmount());
+                    stack.setAmount(stack.getAmount() + add);
+                    remaining -= add;
+                    dirtySlots |= 1L << slot;
+                    if (stack.getAmount() >= stack.getMaxStackSize()) it.remove();
+                }
+            }
+            int maxStackSize = Math.max(1, item.getMaxStackSize());
+            while (remaining > 0 && freeCursor < freeCount) {
+                int slot = freeSlots[freeCursor++];
+                int put = Math.min(remaining, maxStackSize);
+                ItemStack stack = item.clone();
+                stack.setAmount(put);
+                bankContents[slot] = stack;
+                remaining -= put;
+                dirtySlots |= 1L << slot;
+                if (put < maxStackSize) partialSlots.computeIfAbsent(item.getType(), k -> new ArrayList<>()).add(slot);
+            }
+            if (remaining < item.getAmount()) {
+                ItemStack in = item.clone();
+                in.setAmount(item.getAmount() - remaining);
+                deposited.add(in);
+            }
+            if (remaining > 0) {
+                ItemStack out = item.clone();
+                out.setAmount(remaining);
+                overflow.add(out);
+            }
+        }
+        return new BankDeposit(deposited, overflow, dirtySlots);
+    }
+
     public void setBankItem(int slot, ItemStack item) {
+        if (bankContents == null) throw new IllegalStateException("Bank of guild " + name + " is not loaded");
         if (slot >= 0 && slot < BANK_SIZE) {
             bankContents[slot] = item;
         }
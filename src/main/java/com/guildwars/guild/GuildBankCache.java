@@ -0,0 +1,132 @@
+package com.guildwars.guild;
+
+import com.guildwars.storage.DatabaseManager;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps only recently used guild banks in memory.
+ * A bank is read from the database the first time something touches it, and evicted again after sitting idle
+ * for the configured time or when more than the configured number of banks are loaded (least recently used first).
+ * Eviction saves the bank first; the diff save makes this free when nothing changed.
+ */
+public class GuildBankCache {
+
+    private final DatabaseManager dbManager;
+    private final long idleMillis;
+    private final int maxLoadedBanks;
+
+    // Access-ordered, so iteration runs from least to most recently used. Guarded by this.
+    private final LinkedHashMap<Guild, Long> lastAccess = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Guild, Integer> viewers = new HashMap<>(); // Open shared bank inventories per guild. Guarded by this.
+    private long hydrations = 0;
+    private long evictions = 0;
+
+    public GuildBankCache(DatabaseManager dbManager, long idleMinutes, int maxLoadedBanks) {
+        this.dbManager = dbManager;
+        this.idleMillis = TimeUnit.MINUTES.toMillis(Math.max(1, idleMinutes));
+        this.maxLoadedBanks = Math.max(1, maxLoadedBanks);
+    }
+
+    /**
+     * Returns the guild's live bank contents, loading them from the database if needed.
+     * @return The contents, or null if the bank could not be loaded (callers must not treat that as an empty bank).
+     */
+    public ItemStack[] getContents(Guild guild) {
+        synchronized (guild) {
+            if (!guild.isBankLoaded()) {
+                if (!dbManager.loadGuildBank(guild)) return null;
+                synchronized (this) {
+                    hydrations++;
+                }
+            }
+            touch(guild);
+            return guild.getBankContents();
+        }
+    }
+
+    /**
+     * Registers a bank that was populated without going through the cache (new guilds, eager preload).
+     */
+    public void track(Guild guild) {
+        if (guild.isBankLoaded()) touch(guild);
+    }
+
+    // A bank with an open shared inventory is never evicted; releasing the inventory saves it first
+    public synchronized void addViewer(Guild guild) {
+        viewers.merge(guild, 1, Integer::sum);
+    }
+
+    public synchronized void removeViewer(Guild guild) {
+        viewers.computeIfPresent(guild, (g, count) -> count > 1 ? count - 1 : null);
+    }
+
+    public synchronized void forget(Guild guild) {
+        lastAccess.remove(guild);
+        viewers.remove(guild);
+    }
+
+    /**
+     * Evicts banks that are idle past the TTL, then least recently used banks while over the size budget.
+     * Meant to run periodically on the main thread.
+     * @return The number of banks evicted.
+     */
+    public int evictIdle() {
+        long now = System.currentTimeMillis();
+        List<Guild> candidates = new ArrayList<>();
+        synchronized (this) {
+            int excess = lastAccess.size() - maxLoadedBanks;
+            Iterator<Map.Entry<Guild, Long>> it = lastAccess.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Guild, Long> entry = it.next();
+                boolean idle = now - entry.getValue() >= idleMillis;
+                if (!idle && excess <= 0) break; // Everything after this is more recent
+                if (viewers.containsKey(entry.getKey())) continue;
+                candidates.add(entry.getKey());
+                excess--;
+            }
+        }
+        int evicted = 0;
+        for (Guild guild : candidates) {
+            if (evict(guild)) evicted++;
+        }
+        return evicted;
+    }
+
+    private boolean evict(Guild guild) {
+        synchronized (guild) {
+            synchronized (this) {
+                if (viewers.containsKey(guild)) return false;
+            }
+            if (!guild.isBankLoaded()) {
+                forget(guild);
+                return false;
+            }
+            dbManager.saveGuildBank(guild); // Write back anything dirty; no-op if unchanged
+            // Reloading while that write is still queued would read stale rows, so keep it until it lands
+            if (dbManager.hasPendingBankWrite(guild.getName())) return false;
+            dbManager.releaseBankShadow(guild.getName());
+            guild.unloadBank();
+            synchronized (this) {
+                lastAccess.remove(guild);
+                evictions++;
+            }
+            return true;
+        }
+    }
+
+    private synchronized void touch(Guild guild) {
+        lastAccess.put(guild, System.currentTimeMillis());
+    }
+
+    public synchronized String getStats() {
+        return lastAccess.size() + " loaded (max " + maxLoadedBanks + "), " + hydrations + " loads, " + evictions + " evictions";
+    }
+}
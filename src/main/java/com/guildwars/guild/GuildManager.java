@@ -1,31 +1,50 @@
 package com.guildwars.guild;
 
 import com.guildwars.GuildWarsPlugin;
+import com.guildwars.guild.claims.ChunkOwnershipIndex;
+import com.guildwars.guild.outposts.OutpostScheduler;
 import com.guildwars.guild.outposts.OutpostType;
+import com.guildwars.guild.outposts.SiloLootTable;
 import com.guildwars.guild.perks.GuildPerkType;
+import com.guildwars.guild.wars.WarMatrix;
+import com.guildwars.services.BankAuditLog;
+import com.guildwars.services.HasteAuraService;
 import com.guildwars.services.HologramManager;
+import com.guildwars.services.HomeParticleRenderer;
+import com.guildwars.services.ProfileCache;
 import com.guildwars.storage.DatabaseManager;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
-import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import java.io.File;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+/**
+ * Owns all guild state. Guild objects are not thread-safe and are only read or mutated on the main server thread.
+ * Timers that touch guilds run on the main thread; background work (outpost polling, profile lookups) only
+ * hands its results back to the main thread to apply.
+ */
 public class GuildManager {
 
     private final GuildWarsPlugin plugin;
@@ -34,17 +53,36 @@ public class GuildManager {
     private final HologramManager hologramManager;
     private final Map<String, Guild> guilds;
     private final Map<UUID, String> pendingInvites;
-    private Map<String, List<String>> activeWars;
+    private final WarMatrix warMatrix = new WarMatrix(); // Active wars keyed by compact guild id
+
+    // Compact guild ids (dense, recycled on delete) and the chunk ownership index keyed by them
+    private volatile Guild[] guildsById = new Guild[64];
+    private int nextGuildId = 0;
+    private final Deque<Integer> freeGuildIds = new ArrayDeque<>();
+    private final ChunkOwnershipIndex claimIndex = new ChunkOwnershipIndex();
+    private final Map<UUID, Guild> memberIndex = new ConcurrentHashMap<>(); // Player -> guild they belong to
+    private final OnlineMemberRegistry onlineMembers = new OnlineMemberRegistry();
+    private final ProfileCache profileCache;
+    private final boolean lazyBanks;
+    private final GuildBankCache bankCache;
+    private final SharedBankInventories sharedBanks;
+    private final BankAuditLog bankAuditLog;
+    private final OutpostScheduler outpostScheduler;
+    private HasteAuraService hasteAuraService; // Created by startHasteAura
+    private HomeParticleRenderer homeParticleRenderer; // Created by startHomeParticles
+    private final boolean contributionsToBank;
+    private final boolean staggeredUpkeep;
+    private final UpkeepSchedule upkeepSchedule;
 
     private final long upkeepXpPerChunk;
     private final long xpSiphonCreationCost, xpSiphonXpGeneration, xpSiphonIntervalMillis;
     private final long barracksCreationCost, barracksXpGeneration, barracksIntervalMillis;
     private final long resourceSiloCreationCost, resourceSiloIntervalMillis;
     private final int resourceSiloGenerationChance;
+    private volatile SiloLootTable siloLootTable;
 
     private static final int BASE_MAX_MEMBERS = 10;
     public static final int BASE_MAX_CLAIMS = 5;
-    private final Random random = new Random();
 
     public static final int WAR_POINTS_PER_KILL = 1;
     public static final int WAR_POINTS_PER_CHUNK_CONTEST = 5;
@@ -66,11 +104,23 @@ public class GuildManager {
         this.resourceSiloCreationCost = resourceSiloCreationCost;
         this.resourceSiloIntervalMillis = TimeUnit.HOURS.toMillis(resourceSiloIntervalHours);
         this.resourceSiloGenerationChance = resourceSiloGenerationChance;
+        this.siloLootTable = SiloLootTable.compile(plugin.getConfig().getConfigurationSection("outposts.RESOURCE_SILO"), plugin.getLogger());
+        this.lazyBanks = plugin.getConfig().getBoolean("bank-cache.enabled", true);
+        this.bankCache = new GuildBankCache(dbManager,
+                plugin.getConfig().getLong("bank-cache.idle-minutes", 30L),
+                lazyBanks ? plugin.getConfig().getInt("bank-cache.max-loaded-banks", 200) : Integer.MAX_VALUE);
+        this.bankAuditLog = new BankAuditLog(plugin, dbManager);
+        this.sharedBanks = new SharedBankInventories(plugin, dbManager, bankCache, bankAuditLog);
 
         this.guilds = new ConcurrentHashMap<>();
         this.pendingInvites = new ConcurrentHashMap<>();
-        this.activeWars = new ConcurrentHashMap<>();
         this.hologramManager = new HologramManager(plugin); // HologramManager is initialized here
+        this.contributionsToBank = plugin.getConfig().getBoolean("contributions.deposit-to-bank", false);
+        this.staggeredUpkeep = !"burst".equalsIgnoreCase(plugin.getConfig().getString("upkeep-mode", "staggered"));
+        this.upkeepSchedule = new UpkeepSchedule(TimeUnit.HOURS.toMillis(plugin.getConfig().getLong("upkeep-interval-hours", 24L)),
+                plugin.getConfig().getInt("upkeep-max-guilds-per-tick", 5));
+        this.profileCache = new ProfileCache(plugin, dbManager, onlineMembers);
+        this.outpostScheduler = new OutpostScheduler(plugin, this::runOutpost, plugin.getConfig().getInt("outposts.scheduler.max-per-run", 100));
 
         loadAllData();
         // reloadAllOutpostHolograms(); // This is now called by GuildWarsPlugin after HologramManager.initializeAfterServerLoad()
@@ -80,15 +130,31 @@ public class GuildManager {
         if (this.dbManager == null) {
             System.err.println("DatabaseManager is null. Cannot load data."); return;
         }
-        Map<String, Guild> loadedGuilds = dbManager.loadAllGuilds();
-        dbManager.loadGuildMembersAndOfficers(loadedGuilds);
+        long start = System.nanoTime();
+        Map<String, Guild> loadedGuilds = dbManager.loadAllGuilds(!lazyBanks);
+        dbManager.loadGuildMembersAndOfficers(loadedGuilds, memberIndex);
         for (Guild guild : loadedGuilds.values()) {
-            dbManager.loadGuildClaims(guild);
+            assignGuildId(guild); // Ids must exist before claims are indexed
         }
+        dbManager.loadAllClaims(loadedGuilds, claimIndex);
         this.guilds.putAll(loadedGuilds);
+        plugin.getLogger().info("Indexed " + claimIndex.size() + " claimed chunks for " + loadedGuilds.size() + " guilds.");
         this.pendingInvites.putAll(dbManager.loadPendingInvites());
-        this.activeWars.putAll(dbManager.loadActiveWars());
-        plugin.getLogger().info("Loaded " + this.activeWars.size() + " active war relationships.");
+        int warCount = dbManager.loadActiveWars(this.guilds, warMatrix);
+        plugin.getLogger().info("Loaded " + warCount + " active war relationships.");
+        long now = System.currentTimeMillis();
+        for (Guild guild : this.guilds.values()) {
+            if (guild.getLastUpkeepMillis() <= 0) {
+                // Never billed under the persisted schedule (older database): start its clock now
+                guild.setLastUpkeepMillis(now);
+                dbManager.updateGuildUpkeepDB(guild.getName(), guild.getLevel(), guild.getCurrentXp(), now);
+            }
+            if (staggeredUpkeep) upkeepSchedule.track(guild);
+            for (Map.Entry<OutpostType, Guild.ActiveOutpostInfo> entry : guild.getAllActiveOutposts().entrySet()) {
+                outpostScheduler.register(guild, entry.getKey(), entry.getValue().nextTickTimestamp());
+            }
+        }
+        plugin.getLogger().info(String.format("Guild data loaded in %.1f ms.", (System.nanoTime() - start) / 1_000_000.0));
     }
     
     // Called by GuildWarsPlugin after HologramManager's own late init
@@ -207,9 +273,153 @@ public class GuildManager {
         }
     }
 
+    // --- Guild Id Registry ---
+    private synchronized void assignGuildId(Guild guild) {
+        int id = freeGuildIds.isEmpty() ? nextGuildId++ : freeGuildIds.pop();
+        Guild[] table = guildsById;
+        if (id >= table.length) {
+            table = Arrays.copyOf(table, Math.max(table.length * 2, id + 1));
+        }
+        table[id] = guild;
+        guildsById = table; // Publish through the volatile field
+        guild.setId(id);
+    }
+
+    private synchronized void releaseGuildId(Guild guild) {
+        int id = guild.getId();
+        if (id < 0 || id >= guildsById.length || guildsById[id] != guild) return;
+        warMatrix.clearGuild(id); // A recycled id must not inherit old wars
+        guildsById[id] = null;
+        freeGuildIds.push(id);
+        guild.setId(Guild.UNASSIGNED_ID);
+    }
+
+    public Guild getGuildById(int id) {
+        Guild[] table = guildsById;
+        return (id >= 0 && id < table.length) ? table[id] : null;
+    }
+
+    /**
+     * Cross-checks the player -> guild index against every guild's member list.
+     * @param repair If true, the index is rebuilt from the member lists after checking.
+     * @return A list of human-readable problems; empty if the index is consistent.
+     */
+    public List<String> verifyMemberIndex(boolean repair) {
+        List<String> problems = new ArrayList<>();
+        int indexedMembers = 0;
+        for (Guild guild : guilds.values()) {
+            if (!guild.isMember(guild.getLeader())) {
+                problems.add("Leader " + guild.getLeader() + " of " + guild.getName() + " is not in its member list.");
+            }
+            for (UUID memberUuid : guild.getMembers()) {
+                indexedMembers++;
+                Guild indexed = memberIndex.get(memberUuid);
+                if (indexed != guild) {
+                    problems.add(memberUuid + " is a member of " + guild.getName() + " but indexed to " + (indexed != null ? indexed.getName() : "no guild") + ".");
+                }
+            }
+        }
+        for (Map.Entry<UUID, Guild> entry : memberIndex.entrySet()) {
+            Guild indexed = entry.getValue();
+            if (guilds.get(indexed.getName()) != indexed) {
+                problems.add(entry.getKey() + " is indexed to deleted guild " + indexed.getName() + ".");
+            } else if (!indexed.isMember(entry.getKey())) {
+                problems.add(entry.getKey() + " is indexed to " + indexed.getName() + " but is not in its member list.");
+            }
+        }
+        if (memberIndex.size() != indexedMembers) {
+            problems.add("Index holds " + memberIndex.size() + " players but guilds list " + indexedMembers + " members (a player may be in several guilds).");
+        }
+        if (repair && !problems.isEmpty()) {
+            memberIndex.clear();
+            for (Guild guild : guilds.values()) {
+                for (UUID memberUuid : guild.getMembers()) {
+                    memberIndex.put(memberUuid, guild);
+                }
+            }
+            rebuildOnlineMembers();
+            plugin.getLogger().warning("Member index rebuilt after " + problems.size() + " inconsistencies.");
+        }
+        return problems;
+    }
+
     // --- Standard Guild Getters ---
     public Guild getGuild(String name) { return guilds.get(name); }
-    public Guild getGuildByPlayer(UUID playerUuid) { for (Guild guild : guilds.values()) { if (guild.isMember(playerUuid)) return guild; } return null; }
+    public Guild getGuildByPlayer(UUID playerUuid) { return (playerUuid == null) ? null : memberIndex.get(playerUuid); }
+
+    // --- Online Members ---
+    public void handlePlayerJoin(Player player) {
+        Guild guild = memberIndex.get(player.getUniqueId());
+        if (guild == null) return;
+        onlineMembers.add(guild, player, guild.getRole(player.getUniqueId()));
+        profileCache.recordLogin(player);
+    }
+
+    public void handlePlayerQuit(Player player) {
+        onlineMembers.remove(player.getUniqueId());
+        profileCache.recordLogout(player.getUniqueId());
+        bankAuditLog.forgetViewer(player.getUniqueId());
+    }
+
+    /**
+     * Re-reads the online players into the registry. Needed after a plugin reload, when players are already online.
+     */
+    public void rebuildOnlineMembers() {
+        onlineMembers.clear();
+        for (Player player : Bukkit.getOnlinePlayers()) handlePlayerJoin(player);
+    }
+
+    private void trackIfOnline(Guild guild, UUID playerUuid) {
+        Player player = Bukkit.getPlayer(playerUuid);
+        if (player == null || !player.isOnline()) return;
+        onlineMembers.add(guild, player, guild.getRole(playerUuid));
+        profileCache.recordLogin(player);
+    }
+
+    /**
+     * @return The guild's online members with their ranks. A live read-only view, safe to read from any thread.
+     */
+    public Collection<OnlineMemberRegistry.Member> getOnlineMembers(Guild guild) {
+        return onlineMembers.getOnline(guild);
+    }
+
+    public OnlineMemberRegistry getOnlineMemberRegistry() {
+        return onlineMembers;
+    }
+
+    public ProfileCache getProfileCache() {
+        return profileCache;
+    }
+
+    /**
+     * Sends a message to the guild's online members whose rank is at least minimumRole.
+     * Costs one send per online member of this guild; nobody else is looked at. Safe to call from any thread.
+     * @param except A player to leave out (usually the one who caused the message), or null.
+     * @return The number of players the message was sent to.
+     */
+    public int broadcastToGuild(Guild guild, Component message, Guild.Role minimumRole, Player except) {
+        if (guild == null) return 0;
+        int sent = 0;
+        for (OnlineMemberRegistry.Member member : onlineMembers.getOnline(guild)) {
+            if (member.player() == except || !member.role().atLeast(minimumRole)) continue;
+            member.player().sendMessage(message);
+            sent++;
+        }
+        return sent;
+    }
+
+    public int broadcastToGuild(Guild guild, Component message, Guild.Role minimumRole) {
+        return broadcastToGuild(guild, message, minimumRole, null);
+    }
+
+    // For the existing ChatColor-formatted messages; the text is converted once, not once per recipient
+    public int broadcastToGuild(Guild guild, String legacyMessage, Guild.Role minimumRole, Player except) {
+        return broadcastToGuild(guild, LegacyComponentSerializer.legacySection().deserialize(legacyMessage), minimumRole, except);
+    }
+
+    public int broadcastToGuild(Guild guild, String legacyMessage, Guild.Role minimumRole) {
+        return broadcastToGuild(guild, legacyMessage, minimumRole, null);
+    }
     public Guild getGuildByLeader(UUID leaderUuid) { for (Guild guild : guilds.values()) { if (guild.getLeader().equals(leaderUuid)) return guild; } return null; }
     public Map<String, Guild> getAllGuilds() { return Collections.unmodifiableMap(guilds); }
     public Guild getGuildByNameSanitized(String sanitizedName) {
@@ -227,7 +437,12 @@ public class GuildManager {
         if (guilds.containsKey(name)) return null;
         if (getGuildByPlayer(leader) != null) return null;
         Guild newGuild = new Guild(name, leader);
+        assignGuildId(newGuild);
+        bankCache.track(newGuild);
+        if (staggeredUpkeep) upkeepSchedule.track(newGuild);
         guilds.put(name, newGuild);
+        memberIndex.put(leader, newGuild);
+        trackIfOnline(newGuild, leader);
         if (dbManager != null) dbManager.saveNewGuild(newGuild);
         return newGuild;
     }
@@ -245,8 +460,19 @@ public class GuildManager {
                     removeOutpostStructure(loc, entry.getKey());
                 }
             }
+            outpostScheduler.unregisterAll(guild);
+            upkeepSchedule.forget(guild);
+            if (homeParticleRenderer != null) homeParticleRenderer.markDirty();
+            claimIndex.releaseAll(guild.getId());
             guild.clearAllClaims();
+            for (UUID memberUuid : guild.getMembers()) {
+                memberIndex.remove(memberUuid, guild);
+            }
+            onlineMembers.removeGuild(guild);
             guilds.remove(name);
+            sharedBanks.discard(guild);
+            bankCache.forget(guild);
+            releaseGuildId(guild);
             if (dbManager != null) dbManager.deleteGuildDB(name);
             return true;
         }
@@ -259,6 +485,10 @@ public class GuildManager {
         if (guild != null && getGuildByPlayer(playerUuid) == null) {
             if (guild.getMembers().size() >= getEffectiveMaxMembers(guild)) return false; 
             boolean added = guild.addMember(playerUuid);
+            if (added) {
+                memberIndex.put(playerUuid, guild);
+                trackIfOnline(guild, playerUuid);
+            }
             if (added && dbManager != null) dbManager.addGuildMemberDB(guildName, playerUuid, false);
             return added;
         }
@@ -268,6 +498,11 @@ public class GuildManager {
         Guild guild = getGuild(guildName);
         if (guild != null) {
             boolean removed = guild.removeMember(playerUuid);
+            if (removed) {
+                memberIndex.remove(playerUuid, guild);
+                onlineMembers.remove(playerUuid);
+                sharedBanks.closeFor(guild, playerUuid);
+            }
             if (removed && dbManager != null) {
                 dbManager.removeGuildMemberDB(guildName, playerUuid);
                 if (guild.getMembers().isEmpty() && !guild.getLeader().equals(playerUuid)) { 
@@ -282,6 +517,7 @@ public class GuildManager {
         Guild guild = getGuild(guildName);
         if (guild != null && guild.isMember(playerUuid) && !guild.isOfficer(playerUuid) && !guild.getLeader().equals(playerUuid)) {
             boolean promoted = guild.promoteOfficer(playerUuid);
+            if (promoted) onlineMembers.updateRole(guild, playerUuid, Guild.Role.OFFICER);
             if (promoted && dbManager != null) dbManager.updateGuildMemberRoleDB(guildName, playerUuid, true);
             return promoted;
         }
@@ -291,12 +527,21 @@ public class GuildManager {
         Guild guild = getGuild(guildName);
         if (guild != null && guild.isOfficer(playerUuid) && !guild.getLeader().equals(playerUuid)) {
             boolean demoted = guild.demoteOfficer(playerUuid);
+            if (demoted) onlineMembers.updateRole(guild, playerUuid, Guild.Role.MEMBER);
             if (demoted && dbManager != null) dbManager.updateGuildMemberRoleDB(guildName, playerUuid, false);
             return demoted;
         }
         return false;
     }
 
+    public void transferLeadership(Guild guild, UUID newLeaderUuid) {
+        UUID oldLeaderUuid = guild.getLeader();
+        if (dbManager != null) dbManager.updateGuildLeaderDB(guild.getName(), newLeaderUuid); // DB first
+        guild.setLeader(newLeaderUuid); // Then memory
+        onlineMembers.updateRole(guild, oldLeaderUuid, guild.getRole(oldLeaderUuid));
+        onlineMembers.updateRole(guild, newLeaderUuid, Guild.Role.LEADER);
+    }
+
     // --- Invite Management --- 
     public void addInvite(UUID invitedPlayerUuid, String guildName) { 
         pendingInvites.put(invitedPlayerUuid, guildName);
@@ -320,8 +565,28 @@ public class GuildManager {
             dbManager.updateGuildLevelAndXp(guild.getName(), guild.getLevel(), guild.getCurrentXp());
         }
     }
+    private void returnItems(Player player, Collection<ItemStack> items) {
+        for (ItemStack leftover : player.getInventory().addItem(items.toArray(new ItemStack[0])).values()) {
+            player.getWorld().dropItemNaturally(player.getLocation(), leftover);
+        }
+    }
+
     public long contributeItems(Player player, Guild guild, List<ItemStack> items) { 
         if (player == null || guild == null || items == null || items.isEmpty()) return 0;
+        if (contributionsToBank) {
+            // Items go into the guild bank; only what fits earns XP and the rest goes back to the player
+            Guild.BankDeposit deposit = depositToBank(guild, items);
+            if (deposit == null) {
+                player.sendMessage(ChatColor.RED + "The guild bank could not be loaded. Your items were returned.");
+                returnItems(player, items);
+                return 0;
+            }
+            if (!deposit.overflow().isEmpty()) {
+                player.sendMessage(ChatColor.YELLOW + "The guild bank is full; some items were returned to you.");
+                returnItems(player, deposit.overflow());
+            }
+            items = deposit.deposited();
+        }
         long totalXpAwarded = 0;
         for (ItemStack item : items) {
             if (item != null && item.getType() != Material.AIR) {
@@ -335,11 +600,7 @@ public class GuildManager {
             if (leveledUp) {
                 String levelUpMessage = ChatColor.GOLD + "Your guild, " + ChatColor.AQUA + guild.getName() + ChatColor.GOLD + ", has leveled up to level " + ChatColor.YELLOW + guild.getLevel() + ChatColor.GOLD + "!";
                 player.sendMessage(levelUpMessage);
-                for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-                    if (guild.isMember(onlinePlayer.getUniqueId()) && !onlinePlayer.getUniqueId().equals(player.getUniqueId())) {
-                        onlinePlayer.sendMessage(levelUpMessage);
-                    }
-                }
+                broadcastToGuild(guild, levelUpMessage, Guild.Role.MEMBER, player);
             }
         } else {
             player.sendMessage(ChatColor.YELLOW + "No XP was awarded for the contribution.");
@@ -352,6 +613,7 @@ public class GuildManager {
         if (guild == null) return;
         guild.setGuildHomeLocation(location);
         if (dbManager != null) dbManager.updateGuildHomeDB(guild.getName(), location);
+        if (homeParticleRenderer != null) homeParticleRenderer.markDirty();
     }
 
     // --- Claim Management --- 
@@ -364,24 +626,22 @@ public class GuildManager {
         int bonusClaims = perkManager.getAccumulatedIntValue(guild.getLevel(), GuildPerkType.MAX_CLAIMED_CHUNKS_INCREASE);
         int maxClaims = BASE_MAX_CLAIMS + bonusClaims;
         if (guild.getClaimedChunks().size() >= maxClaims) return false;
+        if (!claimIndex.claim(world.getName(), chunkX, chunkZ, guild.getId())) return false; // Lost a race for the chunk
         guild.addClaimedChunk(world.getName(), chunkX, chunkZ);
         if (dbManager != null) dbManager.saveGuildClaim(guild.getName(), world.getName(), chunkX, chunkZ);
         return true;
     }
     public boolean unclaimChunk(Guild guild, World world, int chunkX, int chunkZ) { 
         if (guild == null || world == null) return false;
-        if (!guild.hasClaimedChunk(world.getName(), chunkX, chunkZ)) return false;
+        if (!claimIndex.release(world.getName(), chunkX, chunkZ, guild.getId())) return false;
         guild.removeClaimedChunk(world.getName(), chunkX, chunkZ);
         if (dbManager != null) dbManager.removeGuildClaim(world.getName(), chunkX, chunkZ);
         return true;
     }
     public Guild getGuildOwningChunk(World world, int chunkX, int chunkZ) { 
         if (world == null) return null;
-        String targetChunkId = getChunkId(world, chunkX, chunkZ);
-        for (Guild g : guilds.values()) {
-            if (g.hasClaimedChunk(world.getName(), chunkX, chunkZ)) return g;
-        }
-        return null;
+        int ownerId = claimIndex.getOwner(world.getName(), chunkX, chunkZ);
+        return (ownerId == ChunkOwnershipIndex.NO_OWNER) ? null : getGuildById(ownerId);
     }
     
     // --- Perk Related Getters --- 
@@ -410,34 +670,108 @@ public class GuildManager {
     }
 
     // --- Guild Bank Management --- 
+    /**
+     * Returns the guild's bank contents, loading them from the database on first use.
+     * @return The live contents, or null if the bank could not be loaded.
+     */
+    public ItemStack[] getBankContents(Guild guild) {
+        return bankCache.getContents(guild);
+    }
+
+    /**
+     * Deposits items into a guild's bank (loading it if needed) and persists only the slots that changed.
+     * Used by every automated input: Resource Silos, contributions and admin gives. Main thread only.
+     * If members have the bank open, the deposit goes into the shared inventory they are looking at.
+     * @return What was deposited and what overflowed, or null if the bank could not be loaded.
+     */
+    public Guild.BankDeposit depositToBank(Guild guild, Collection<ItemStack> items) {
+        synchronized (guild) {
+            if (getBankContents(guild) == null) return null;
+            boolean open = sharedBanks.isOpen(guild);
+            boolean pulled = open && sharedBanks.pullIntoGuild(guild);
+            Guild.BankDeposit result = guild.depositToBank(items);
+            if (result.changed() && open) sharedBanks.pushToInventory(guild, result.dirtySlots());
+            if (dbManager != null) {
+                // Pulling clears the shared inventory's dirty flag, so viewers' edits are saved here even if
+                // nothing fit (a full bank); the full diff covers them along with the deposit
+                if (pulled || (open && result.changed())) dbManager.saveGuildBank(guild);
+                else if (result.changed()) dbManager.saveGuildBank(guild, result.dirtySlots());
+            }
+            return result;
+        }
+    }
+
+    // Evicts idle banks; scheduled periodically when lazy loading is enabled
+    public void evictIdleBanks() {
+        if (!lazyBanks) return;
+        int evicted = bankCache.evictIdle();
+        if (evicted > 0) plugin.getLogger().fine("Evicted " + evicted + " idle guild banks.");
+    }
+
+    public boolean isLazyBankLoading() {
+        return lazyBanks;
+    }
+
+    public GuildBankCache getBankCache() {
+        return bankCache;
+    }
+
+    public SharedBankInventories getSharedBanks() {
+        return sharedBanks;
+    }
+
+    public BankAuditLog getBankAuditLog() {
+        return bankAuditLog;
+    }
+
     public void saveGuildBank(Guild guild) { 
         if (dbManager != null && guild != null) dbManager.saveGuildBank(guild);
     }
 
     // --- Guild Upkeep Processing --- 
-    public void processAllGuildUpkeep() { 
+    /**
+     * Bills territory upkeep for every guild with claims. Must be called on the main thread, like every other
+     * guild mutation, so the claim count billed is the one commands see.
+     */
+    public void processAllGuildUpkeep() {
         System.out.println("Processing guild upkeep...");
-        for (Guild guild : guilds.values()) {
-            if (guild.getClaimedChunks().isEmpty()) continue;
+        long now = System.currentTimeMillis();
+        for (Guild guild : new ArrayList<>(guilds.values())) {
             long totalUpkeepCost = guild.getClaimedChunks().size() * this.upkeepXpPerChunk;
-            if (totalUpkeepCost <= 0) continue;
+            if (totalUpkeepCost > 0) billUpkeep(guild, totalUpkeepCost, now);
+        }
+        System.out.println("Guild upkeep processing finished.");
+    }
+
+    /**
+     * Bills the guilds whose upkeep slot has come up, at most upkeep-max-guilds-per-tick per call.
+     * Runs every tick on the main thread when upkeep-mode is staggered.
+     */
+    public void processDueUpkeep() {
+        long now = System.currentTimeMillis();
+        for (Guild guild : upkeepSchedule.pollDue(now)) {
+            if (guilds.get(guild.getName()) != guild) continue;
+            billUpkeep(guild, guild.getClaimedChunks().size() * this.upkeepXpPerChunk, now);
+            upkeepSchedule.track(guild);
+        }
+    }
+
+    public boolean isStaggeredUpkeep() {
+        return staggeredUpkeep;
+    }
+
+    // Charges one guild and records the billing time with the resulting XP in a single write
+    private void billUpkeep(Guild guild, long totalUpkeepCost, long now) {
+        guild.setLastUpkeepMillis(now);
+        if (totalUpkeepCost > 0) {
             boolean paymentSuccessful = guild.payXpUpkeep(totalUpkeepCost);
             if (paymentSuccessful) {
-                updateGuildLevelAndXp(guild);
-                Player leader = Bukkit.getPlayer(guild.getLeader());
-                if (leader != null && leader.isOnline()) {
-                    leader.sendMessage(ChatColor.GREEN + "Your guild paid " + ChatColor.AQUA + totalUpkeepCost + ChatColor.GREEN + " XP for territory upkeep.");
-                }
+                broadcastToGuild(guild, ChatColor.GREEN + "Your guild paid " + ChatColor.AQUA + totalUpkeepCost + ChatColor.GREEN + " XP for territory upkeep.", Guild.Role.LEADER);
                 System.out.println("Guild '" + guild.getName() + "' paid " + totalUpkeepCost + " XP for upkeep.");
             } else {
                 System.out.println("Guild '" + guild.getName() + "' FAILED to pay " + totalUpkeepCost + " XP for upkeep. Unclaiming all lands.");
                 String upkeepFailedMessage = ChatColor.RED + "Your guild, " + ChatColor.AQUA + guild.getName() + ChatColor.RED + ", failed to pay upkeep of " + ChatColor.YELLOW + totalUpkeepCost + ChatColor.RED + " XP. All claimed lands have been lost!";
-                for (UUID memberUuid : guild.getMembers()) {
-                    Player member = Bukkit.getPlayer(memberUuid);
-                    if (member != null && member.isOnline() && (guild.isOfficer(memberUuid) || guild.getLeader().equals(memberUuid))) {
-                        member.sendMessage(upkeepFailedMessage);
-                    }
-                }
+                broadcastToGuild(guild, upkeepFailedMessage, Guild.Role.OFFICER);
                 List<String> chunksToUnclaim = new ArrayList<>(guild.getClaimedChunks());
                 for (String chunkId : chunksToUnclaim) {
                     String[] parts = chunkId.split(":");
@@ -456,7 +790,7 @@ public class GuildManager {
                 }
             }
         }
-        System.out.println("Guild upkeep processing finished.");
+        if (dbManager != null) dbManager.updateGuildUpkeepDB(guild.getName(), guild.getLevel(), guild.getCurrentXp(), now);
     }
 
     // --- Guild Outpost Management ---
@@ -478,8 +812,7 @@ public class GuildManager {
             player.sendMessage(ChatColor.RED + "Your guild already has a " + type.getDisplayName() + " outpost."); return false;
         }
         Location playerLocation = player.getLocation();
-        String playerChunkId = getChunkId(playerLocation.getWorld(), playerLocation.getChunk().getX(), playerLocation.getChunk().getZ());
-        if (!guild.getClaimedChunks().contains(playerChunkId)) {
+        if (getGuildOwningChunk(playerLocation.getWorld(), playerLocation.getChunk().getX(), playerLocation.getChunk().getZ()) != guild) {
             player.sendMessage(ChatColor.RED + "You can only build outposts in claimed territory."); return false;
         }
         if (!guild.payXpUpkeep(creationCost)) {
@@ -495,6 +828,7 @@ public class GuildManager {
         Guild.LocationData locData = new Guild.LocationData(centralBlockLocation.getWorld().getName(), centralBlockLocation.getBlockX(), centralBlockLocation.getBlockY(), centralBlockLocation.getBlockZ());
         long initialNextTick = System.currentTimeMillis() + intervalMillis;
         guild.addOutpost(type, locData, initialNextTick);
+        outpostScheduler.register(guild, type, initialNextTick);
         if (dbManager != null) dbManager.saveGuildOutposts(guild);
         updateGuildLevelAndXp(guild);
         if (hologramManager.isEnabled()) {
@@ -519,6 +853,7 @@ public class GuildManager {
         Location outpostCoreLoc = getOutpostCoreLocation(guild, type);
          if (outpostCoreLoc == null) { 
             player.sendMessage(ChatColor.RED + "Error finding outpost location. Removing data.");
+            outpostScheduler.unregister(guild, type);
             guild.removeOutpost(type);
             if (dbManager != null) dbManager.saveGuildOutposts(guild);
             return true; 
@@ -527,6 +862,7 @@ public class GuildManager {
         if (hologramManager.isEnabled()) {
             hologramManager.deleteOutpostHologram(outpostCoreLoc, guild, type);
         }
+        outpostScheduler.unregister(guild, type);
         guild.removeOutpost(type);
         if (dbManager != null) dbManager.saveGuildOutposts(guild);
         player.sendMessage(ChatColor.GREEN + type.getDisplayName() + " outpost destroyed.");
@@ -561,124 +897,166 @@ public class GuildManager {
         return (m > 0) ? String.format("%dm %02ds", m, s) : String.format("%ds", s);
     }
 
-    public void processXpSiphons() {
-        long currentTime = System.currentTimeMillis();
-        for (Guild guild : guilds.values()) {
-            Guild.ActiveOutpostInfo info = guild.getActiveOutpostInfo(OutpostType.XP_SIPHON);
-            if (info != null && currentTime >= info.nextTickTimestamp()) {
-                guild.addXp(this.xpSiphonXpGeneration);
-                updateGuildLevelAndXp(guild);
-                long newNextTick = currentTime + this.xpSiphonIntervalMillis;
-                guild.updateOutpostNextTick(OutpostType.XP_SIPHON, newNextTick);
-                if (dbManager != null) dbManager.saveGuildOutposts(guild);
-                if (hologramManager.isEnabled()) {
-                    Location coreLoc = getOutpostCoreLocation(guild, OutpostType.XP_SIPHON);
-                    if(coreLoc != null) hologramManager.createOutpostHologram(coreLoc.clone().add(0.5, 3.0, 0.5), guild, OutpostType.XP_SIPHON, newNextTick); 
-                }
-                Player leader = Bukkit.getPlayer(guild.getLeader());
-                if (leader != null && leader.isOnline()) leader.sendMessage(ChatColor.GREEN + "XP Siphon: +" + this.xpSiphonXpGeneration + " XP!");
-            }
+    public void startOutpostScheduler(long initialDelayTicks) {
+        outpostScheduler.start(initialDelayTicks);
+    }
+
+    public OutpostScheduler getOutpostScheduler() {
+        return outpostScheduler;
+    }
+
+    /**
+     * Starts the PASSIVE_HASTE_AURA task on the main thread, every perks.haste-aura.interval-ticks.
+     */
+    public void startHasteAura() {
+        if (hasteAuraService != null) return;
+        hasteAuraService = new HasteAuraService(plugin, this);
+        int intervalTicks = HasteAuraService.getIntervalTicks(plugin);
+        plugin.getServer().getScheduler().runTaskTimer(plugin, hasteAuraService, intervalTicks, intervalTicks);
+    }
+
+    public HasteAuraService getHasteAuraService() {
+        return hasteAuraService;
+    }
+
+    /**
+     * Starts the GUILD_HOME_PARTICLE renderer. It runs every tick but does nothing while no player is near a home.
+     */
+    public void startHomeParticles() {
+        if (homeParticleRenderer != null) return;
+        homeParticleRenderer = new HomeParticleRenderer(plugin, this);
+        plugin.getServer().getScheduler().runTaskTimer(plugin, homeParticleRenderer, 20L, 1L);
+    }
+
+    public HomeParticleRenderer getHomeParticleRenderer() {
+        return homeParticleRenderer;
+    }
+
+    /**
+     * Re-reads config.yml and recompiles the Resource Silo loot table. The new table replaces the old one in a single swap.
+     * @return The number of loot tiers compiled.
+     */
+    public int reloadSiloLootTable() {
+        plugin.reloadConfig();
+        SiloLootTable compiled = SiloLootTable.compile(plugin.getConfig().getConfigurationSection("outposts.RESOURCE_SILO"), plugin.getLogger());
+        this.siloLootTable = compiled;
+        return compiled.tierCount();
+    }
+
+    /**
+     * Reloads perks.yml. The live perk table is only replaced if the whole file is valid.
+     * @return The validation errors; empty on success.
+     */
+    public List<String> reloadPerks() {
+        List<String> errors = perkManager.loadFromFile(new File(plugin.getDataFolder(), "perks.yml"));
+        if (errors.isEmpty() && homeParticleRenderer != null) homeParticleRenderer.markDirty();
+        return errors;
+    }
+
+    public SiloLootTable getSiloLootTable() {
+        return siloLootTable;
+    }
+
+    // Called by the outpost scheduler for each due outpost; returns the outpost's next tick, or 0 if it no longer exists
+    private long runOutpost(Guild guild, OutpostType type, long now) {
+        if (guilds.get(guild.getName()) != guild) return 0;
+        Guild.ActiveOutpostInfo info = guild.getActiveOutpostInfo(type);
+        if (info == null) return 0;
+        if (info.nextTickTimestamp() > now) return info.nextTickTimestamp();
+        switch (type) {
+            case XP_SIPHON: return processXpSiphon(guild, now);
+            case BARRACKS: return processBarracks(guild, now);
+            case RESOURCE_SILO: return processResourceSilo(guild, now);
+            default: return 0;
         }
     }
 
-    public void processBarracks() {
-        long currentTime = System.currentTimeMillis();
-        for (Guild guild : guilds.values()) {
-            Guild.ActiveOutpostInfo info = guild.getActiveOutpostInfo(OutpostType.BARRACKS);
-            if (info != null && currentTime >= info.nextTickTimestamp()) {
-                guild.addXp(this.barracksXpGeneration);
-                updateGuildLevelAndXp(guild);
-                long newNextTick = currentTime + this.barracksIntervalMillis;
-                guild.updateOutpostNextTick(OutpostType.BARRACKS, newNextTick);
-                if (dbManager != null) dbManager.saveGuildOutposts(guild);
-                if (hologramManager.isEnabled()) {
-                    Location coreLoc = getOutpostCoreLocation(guild, OutpostType.BARRACKS);
-                    if(coreLoc != null) hologramManager.createOutpostHologram(coreLoc.clone().add(0.5, 2.7, 0.5), guild, OutpostType.BARRACKS, newNextTick);
-                }
-                Player leader = Bukkit.getPlayer(guild.getLeader());
-                if (leader != null && leader.isOnline()) leader.sendMessage(ChatColor.GREEN + "Barracks: +" + this.barracksXpGeneration + " XP!");
-            }
+    private long processXpSiphon(Guild guild, long currentTime) {
+        guild.addXp(this.xpSiphonXpGeneration);
+        updateGuildLevelAndXp(guild);
+        long newNextTick = currentTime + this.xpSiphonIntervalMillis;
+        guild.updateOutpostNextTick(OutpostType.XP_SIPHON, newNextTick);
+        if (dbManager != null) dbManager.saveGuildOutposts(guild);
+        if (hologramManager.isEnabled()) {
+            Location coreLoc = getOutpostCoreLocation(guild, OutpostType.XP_SIPHON);
+            if(coreLoc != null) hologramManager.createOutpostHologram(coreLoc.clone().add(0.5, 3.0, 0.5), guild, OutpostType.XP_SIPHON, newNextTick); 
         }
+        broadcastToGuild(guild, ChatColor.GREEN + "XP Siphon: +" + this.xpSiphonXpGeneration + " XP!", Guild.Role.LEADER);
+        return newNextTick;
     }
 
-    public void processResourceSilos(GuildWarsPlugin pluginInstance) {
-        ConfigurationSection siloConfig = pluginInstance.getConfig().getConfigurationSection("outposts.RESOURCE_SILO");
-        if (siloConfig == null) { System.err.println("RSilo: Main config section missing."); return; }
-        ConfigurationSection itemConfig = siloConfig.getConfigurationSection("generated-resources");
-        if (itemConfig == null) { System.err.println("RSilo: 'generated-resources' missing."); return; }
-        long currentTime = System.currentTimeMillis();
-        for (Guild guild : guilds.values()) {
-            Guild.ActiveOutpostInfo outpostInfo = guild.getActiveOutpostInfo(OutpostType.RESOURCE_SILO);
-            if (outpostInfo != null && currentTime >= outpostInfo.nextTickTimestamp()) {
-                long newNextTick = currentTime + this.resourceSiloIntervalMillis;
-                guild.updateOutpostNextTick(OutpostType.RESOURCE_SILO, newNextTick);
-                if (dbManager != null) dbManager.saveGuildOutposts(guild); 
-                if (random.nextInt(100) < this.resourceSiloGenerationChance) {
-                    final List<ItemStack> itemsToDeposit = new ArrayList<>();
-                    for (String matName : itemConfig.getKeys(false)) {
-                        String range = itemConfig.getString(matName, "1-1");
-                        String[] parts = range.split("-");
-                        int min = 1, max = 1;
-                        try {
-                            min = Integer.parseInt(parts[0]);
-                            max = parts.length > 1 ? Integer.parseInt(parts[1]) : min;
-                            if (min <= 0) min = 1;
-                            if (max < min) max = min;
-                        } catch (NumberFormatException ex) { continue; }
-                        Material material = Material.matchMaterial(matName.toUpperCase());
-                        if (material != null) {
-                            int amount = (min == max) ? min : random.nextInt(max - min + 1) + min;
-                            if (amount > 0) itemsToDeposit.add(new ItemStack(material, amount));
-                        }
+    private long processBarracks(Guild guild, long currentTime) {
+        guild.addXp(this.barracksXpGeneration);
+        updateGuildLevelAndXp(guild);
+        long newNextTick = currentTime + this.barracksIntervalMillis;
+        guild.updateOutpostNextTick(OutpostType.BARRACKS, newNextTick);
+        if (dbManager != null) dbManager.saveGuildOutposts(guild);
+        if (hologramManager.isEnabled()) {
+            Location coreLoc = getOutpostCoreLocation(guild, OutpostType.BARRACKS);
+            if(coreLoc != null) hologramManager.createOutpostHologram(coreLoc.clone().add(0.5, 2.7, 0.5), guild, OutpostType.BARRACKS, newNextTick);
+        }
+        broadcastToGuild(guild, ChatColor.GREEN + "Barracks: +" + this.barracksXpGeneration + " XP!", Guild.Role.LEADER);
+        return newNextTick;
+    }
+
+    private long processResourceSilo(Guild guild, long currentTime) {
+        long newNextTick = currentTime + this.resourceSiloIntervalMillis;
+        Guild.ActiveOutpostInfo info = guild.getActiveOutpostInfo(OutpostType.RESOURCE_SILO);
+        // Seeded from the scheduled run time, so a given run always produces the same loot
+        SplittableRandom rng = new SplittableRandom(SiloLootTable.seedFor(guild.getName(), info != null ? info.nextTickTimestamp() : currentTime));
+        guild.updateOutpostNextTick(OutpostType.RESOURCE_SILO, newNextTick);
+        if (dbManager != null) dbManager.saveGuildOutposts(guild); 
+        if (rng.nextInt(100) < this.resourceSiloGenerationChance) {
+            final List<ItemStack> itemsToDeposit = siloLootTable.roll(guild.getLevel(), rng);
+            if (!itemsToDeposit.isEmpty()) {
+                Guild.BankDeposit deposit = depositToBank(guild, itemsToDeposit);
+                if (deposit == null) {
+                    plugin.getLogger().warning("Silo for " + guild.getName() + ": bank could not be loaded; skipping deposit.");
+                } else {
+                    for (ItemStack lost : deposit.overflow()) {
+                        plugin.getLogger().warning("Silo for " + guild.getName() + ": Not all " + lost.getType() + " fit (" + lost.getAmount() + " lost).");
                     }
-                    if (!itemsToDeposit.isEmpty()) {
-                        final Guild finalGuild = guild;
-                        Bukkit.getScheduler().runTask(pluginInstance, () -> {
-                            ItemStack[] bank = finalGuild.getBankContents();
-                            Map<Material, Integer> summary = new HashMap<>();
-                            for (ItemStack item : itemsToDeposit) {
-                                int remaining = item.getAmount();
-                                for (int i = 0; i < Guild.BANK_SIZE && remaining > 0; i++) { 
-                                    if (bank[i] != null && bank[i].isSimilar(item) && bank[i].getAmount() < bank[i].getMaxStackSize()) {
-                                        int add = Math.min(remaining, bank[i].getMaxStackSize() - bank[i].getAmount());
-                                        bank[i].setAmount(bank[i].getAmount() + add); remaining -= add;
-                                        summary.put(item.getType(), summary.getOrDefault(item.getType(), 0) + add);
-                                    }
-                                }
-                                for (int i = 0; i < Guild.BANK_SIZE && remaining > 0; i++) { 
-                                    if (bank[i] == null || bank[i].getType() == Material.AIR) {
-                                        bank[i] = new ItemStack(item.getType(), remaining); 
-                                        summary.put(item.getType(), summary.getOrDefault(item.getType(), 0) + remaining); remaining = 0; break;
-                                    }
-                                }
-                                if (remaining > 0) plugin.getLogger().warning("Silo for " + finalGuild.getName() + ": Not all " + item.getType() + " fit.");
-                            }
-                            if (!summary.isEmpty()) {
-                                finalGuild.setBankContents(bank);
-                                dbManager.saveGuildBank(finalGuild);
-                                String msg = summary.entrySet().stream().map(e->e.getValue()+"x "+e.getKey().name().toLowerCase().replace("_"," ")).collect(Collectors.joining(", "));
-                                Player ldr = Bukkit.getPlayer(finalGuild.getLeader());
-                                if (ldr != null && ldr.isOnline()) ldr.sendMessage(ChatColor.GREEN + "Resource Silo generated: " + ChatColor.AQUA + msg);
-                            }
-                        });
+                    if (!deposit.deposited().isEmpty()) {
+                        String msg = deposit.deposited().stream().map(i -> i.getAmount() + "x " + i.getType().name().toLowerCase().replace("_", " ")).collect(Collectors.joining(", "));
+                        broadcastToGuild(guild, ChatColor.GREEN + "Resource Silo generated: " + ChatColor.AQUA + msg, Guild.Role.LEADER);
                     }
                 }
-                if (hologramManager.isEnabled()) { 
-                    Location coreLoc = getOutpostCoreLocation(guild, OutpostType.RESOURCE_SILO);
-                    if(coreLoc != null) hologramManager.createOutpostHologram(coreLoc.clone().add(0.5, 2.7, 0.5), guild, OutpostType.RESOURCE_SILO, newNextTick);
-                }
             }
         }
+        if (hologramManager.isEnabled()) { 
+            Location coreLoc = getOutpostCoreLocation(guild, OutpostType.RESOURCE_SILO);
+            if(coreLoc != null) hologramManager.createOutpostHologram(coreLoc.clone().add(0.5, 2.7, 0.5), guild, OutpostType.RESOURCE_SILO, newNextTick);
+        }
+        return newNextTick;
     }
 
     // --- Guild War Management ---
+    public boolean isAtWarWith(Guild guild1, Guild guild2) {
+        if (guild1 == null || guild2 == null) return false;
+        return warMatrix.isAtWar(guild1.getId(), guild2.getId());
+    }
     public boolean isAtWarWith(String guild1Name, String guild2Name) { 
-         if (guild1Name == null || guild2Name == null) return false;
-        List<String> wars = activeWars.get(guild1Name);
-        return wars != null && wars.contains(guild2Name);
+        if (guild1Name == null || guild2Name == null) return false;
+        return isAtWarWith(guilds.get(guild1Name), guilds.get(guild2Name));
     }
     public List<String> getWarsForGuild(String guildName) { 
-        return activeWars.getOrDefault(guildName, Collections.emptyList());
+        Guild guild = guilds.get(guildName);
+        if (guild == null) return Collections.emptyList();
+        List<String> enemies = new ArrayList<>();
+        for (int enemyId : warMatrix.enemiesOf(guild.getId())) {
+            Guild enemy = getGuildById(enemyId);
+            if (enemy != null) enemies.add(enemy.getName());
+        }
+        return enemies;
+    }
+    // Lock-free (war matrix and id table), so async chat can use it
+    public List<Guild> getGuildsAtWarWith(Guild guild) {
+        List<Guild> enemies = new ArrayList<>();
+        for (int enemyId : warMatrix.enemiesOf(guild.getId())) {
+            Guild enemy = getGuildById(enemyId);
+            if (enemy != null) enemies.add(enemy);
+        }
+        return enemies;
     }
     public boolean declareWar(Player declarer, String targetGuildName) { 
         Guild declaringGuild = getGuildByPlayer(declarer.getUniqueId());
@@ -687,11 +1065,10 @@ public class GuildManager {
         Guild targetGuild = getGuild(targetGuildName);
         if (targetGuild == null) { declarer.sendMessage(ChatColor.RED + "Target guild not found."); return false; }
         if (declaringGuild.getName().equalsIgnoreCase(targetGuild.getName())) { declarer.sendMessage(ChatColor.RED + "Cannot war yourself."); return false; }
-        if (isAtWarWith(declaringGuild.getName(), targetGuild.getName())) { declarer.sendMessage(ChatColor.YELLOW + "Already at war."); return false; }
+        if (isAtWarWith(declaringGuild, targetGuild)) { declarer.sendMessage(ChatColor.YELLOW + "Already at war."); return false; }
         long startDate = System.currentTimeMillis() / 1000L;
         dbManager.saveWar(declaringGuild.getName(), targetGuild.getName(), startDate);
-        activeWars.computeIfAbsent(declaringGuild.getName(), k -> new ArrayList<>()).add(targetGuild.getName());
-        activeWars.computeIfAbsent(targetGuild.getName(), k -> new ArrayList<>()).add(declaringGuild.getName());
+        warMatrix.setAtWar(declaringGuild.getId(), targetGuild.getId(), true);
         Bukkit.broadcastMessage(ChatColor.RED + "WAR! " + ChatColor.GOLD + declaringGuild.getName() + ChatColor.RED + " vs " + ChatColor.GOLD + targetGuild.getName() + ChatColor.RED + "!");
         return true;
     }
@@ -701,12 +1078,9 @@ public class GuildManager {
         if (!declaringGuild.getLeader().equals(declarer.getUniqueId())) { declarer.sendMessage(ChatColor.RED + "Leaders only."); return false; }
         Guild targetGuild = getGuild(targetGuildName);
         if (targetGuild == null) { declarer.sendMessage(ChatColor.RED + "Target guild not found."); return false; }
-        if (!isAtWarWith(declaringGuild.getName(), targetGuild.getName())) { declarer.sendMessage(ChatColor.YELLOW + "Not at war with them."); return false; }
+        if (!isAtWarWith(declaringGuild, targetGuild)) { declarer.sendMessage(ChatColor.YELLOW + "Not at war with them."); return false; }
         dbManager.deleteWar(declaringGuild.getName(), targetGuild.getName());
-        List<String> dWars = activeWars.get(declaringGuild.getName());
-        if (dWars != null) dWars.remove(targetGuild.getName());
-        List<String> tWars = activeWars.get(targetGuild.getName());
-        if (tWars != null) tWars.remove(declaringGuild.getName());
+        warMatrix.setAtWar(declaringGuild.getId(), targetGuild.getId(), false);
         Bukkit.broadcastMessage(ChatColor.GREEN + "PEACE between " + ChatColor.GOLD + declaringGuild.getName() + ChatColor.GREEN + " and " + ChatColor.GOLD + targetGuild.getName() + ChatColor.GREEN + ".");
         return true;
     }
@@ -714,20 +1088,34 @@ public class GuildManager {
         if (points <= 0) return;
         Guild actingGuild = getGuild(actingGuildName);
         Guild opposingGuild = getGuild(opposingGuildName);
-        if (actingGuild == null || opposingGuild == null || !isAtWarWith(actingGuildName, opposingGuildName)) return;
+        if (actingGuild == null || opposingGuild == null || !isAtWarWith(actingGuild, opposingGuild)) return;
         String g1 = actingGuildName.compareTo(opposingGuildName) < 0 ? actingGuildName : opposingGuildName;
         String g2 = actingGuildName.compareTo(opposingGuildName) < 0 ? opposingGuildName : actingGuildName;
         int g1ScoreDelta = actingGuildName.equals(g1) ? points : 0;
         int g2ScoreDelta = actingGuildName.equals(g2) ? points : 0;
+        warMatrix.addScore(actingGuild.getId(), opposingGuild.getId(), points);
         dbManager.updateWarScore(g1, g2, g1ScoreDelta, g2ScoreDelta);
-        Map<String, Integer> newScores = dbManager.getWarScore(g1, g2);
+        Map<String, Integer> newScores = getWarScore(actingGuildName, opposingGuildName);
         String scoreMsg = String.format("%s%s %s+%d points %sagainst %s%s%s! (Score: %d - %d)", ChatColor.GOLD, actingGuild.getName(), ChatColor.GREEN, points, ChatColor.GREEN, ChatColor.GOLD, opposingGuild.getName(), ChatColor.GREEN, newScores.getOrDefault(actingGuildName,0), newScores.getOrDefault(opposingGuildName,0));
-        Bukkit.getOnlinePlayers().stream().filter(p -> { Guild g = getGuildByPlayer(p.getUniqueId()); return g != null && (g.getName().equals(actingGuildName) || g.getName().equals(opposingGuildName)); }).forEach(p -> p.sendMessage(scoreMsg));
+        broadcastToGuild(actingGuild, scoreMsg, Guild.Role.MEMBER);
+        broadcastToGuild(opposingGuild, scoreMsg, Guild.Role.MEMBER);
         plugin.getLogger().info("War Score: " + ChatColor.stripColor(scoreMsg));
     }
+    // Served from memory; the database copy is updated behind the write queue
+    public Map<String, Integer> getWarScore(String guild1Name, String guild2Name) {
+        Map<String, Integer> scores = new HashMap<>();
+        Guild guild1 = guilds.get(guild1Name);
+        Guild guild2 = guilds.get(guild2Name);
+        scores.put(guild1Name, guild1 != null && guild2 != null ? warMatrix.getScore(guild1.getId(), guild2.getId()) : 0);
+        scores.put(guild2Name, guild1 != null && guild2 != null ? warMatrix.getScore(guild2.getId(), guild1.getId()) : 0);
+        return scores;
+    }
     public DatabaseManager getDbManager() { 
         return dbManager; 
     }
+    public GuildWarsPlugin getPlugin() {
+        return plugin;
+    }
     public HologramManager getHologramManager() {
         return hologramManager;
     }
@@ -0,0 +1,90 @@
+package com.guildwars.guild;
+
+import org.bukkit.entity.Player;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live set of online players per guild, with each player's rank, so guild messages only touch the guild's online
+ * members instead of every member UUID or every online player. Updated on join and quit, and whenever membership
+ * or a rank changes. Written on the main thread; everything is concurrent so async chat can read it without
+ * touching the guild's own (main-thread) member sets.
+ */
+public class OnlineMemberRegistry {
+
+    public record Member(Player player, Guild.Role role) {}
+
+    private final Map<Guild, Map<UUID, Member>> online = new ConcurrentHashMap<>();
+    private final Map<UUID, Guild> guildOfOnline = new ConcurrentHashMap<>();
+
+    public void add(Guild guild, Player player, Guild.Role role) {
+        UUID playerUuid = player.getUniqueId();
+        Guild previous = guildOfOnline.put(playerUuid, guild);
+        if (previous != null && previous != guild) removeFrom(previous, playerUuid);
+        online.computeIfAbsent(guild, g -> new ConcurrentHashMap<>()).put(playerUuid, new Member(player, role));
+    }
+
+    /**
+     * Records a rank change for a member who is online. Does nothing if they are not.
+     */
+    public void updateRole(Guild guild, UUID playerUuid, Guild.Role role) {
+        Map<UUID, Member> members = online.get(guild);
+        if (members == null) return;
+        members.computeIfPresent(playerUuid, (uuid, member) -> new Member(member.player(), role));
+    }
+
+    public void remove(UUID playerUuid) {
+        Guild guild = guildOfOnline.remove(playerUuid);
+        if (guild != null) removeFrom(guild, playerUuid);
+    }
+
+    private void removeFrom(Guild guild, UUID playerUuid) {
+        Map<UUID, Member> members = online.get(guild);
+        if (members == null) return;
+        members.remove(playerUuid);
+        if (members.isEmpty()) online.remove(guild, members);
+    }
+
+    public void removeGuild(Guild guild) {
+        Map<UUID, Member> members = online.remove(guild);
+        if (members == null) return;
+        for (UUID playerUuid : members.keySet()) guildOfOnline.remove(playerUuid, guild);
+    }
+
+    public void clear() {
+        online.clear();
+        guildOfOnline.clear();
+    }
+
+    /**
+     * @return The guild's online members. A live read-only view; do not hold on to it across ticks.
+     */
+    public Collection<Member> getOnline(Guild guild) {
+        Map<UUID, Member> members = online.get(guild);
+        return members == null ? Collections.emptyList() : Collections.unmodifiableCollection(members.values());
+    }
+
+    /**
+     * @return The online member entry for this player, or null if they are offline or not in the guild.
+     */
+    public Member get(Guild guild, UUID playerUuid) {
+        Map<UUID, Member> members = online.get(guild);
+        return members == null ? null : members.get(playerUuid);
+    }
+
+    public boolean isOnline(UUID playerUuid) {
+        return guildOfOnline.containsKey(playerUuid);
+    }
+
+    public int onlineCount() {
+        return guildOfOnline.size();
+    }
+
+    public int guildCount() {
+        return online.size();
+    }
+}
@@ -1,25 +1,161 @@
-package com.guildwars.guild; 
+package com.guildwars.guild;
 
 import com.guildwars.guild.perks.GuildPerk;
 import com.guildwars.guild.perks.GuildPerkType;
+import org.bukkit.Particle;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class PerkManager {
 
-    private final Map<Integer, List<GuildPerk>> perksByLevel = new HashMap<>();
+    /**
+     * What a guild at some level has of one perk type.
+     * accumulatedInt sums every numeric value unlocked so far; latestInt and latestString are the most recent values.
+     */
+    public record PerkValue(int accumulatedInt, int latestInt, String latestString) {}
+
+    /**
+     * Immutable per-level lookup table built from the perk definitions.
+     * levels[n] holds everything unlocked at guild level n, so a query is an array index plus an EnumMap lookup.
+     * Levels above the highest defined one reuse its entry.
+     */
+    private static final class PerkTable {
+        final List<Map<GuildPerkType, PerkValue>> levels;
+        final List<List<GuildPerk>> unlockedPerks;
+        final Map<GuildPerkType, Integer> levelRequired;
+
+        PerkTable(Map<Integer, List<GuildPerk>> perksByLevel) {
+            int maxLevel = 0;
+            for (int level : perksByLevel.keySet()) maxLevel = Math.max(maxLevel, level);
+            List<Map<GuildPerkType, PerkValue>> levels = new ArrayList<>(maxLevel + 1);
+            List<List<GuildPerk>> unlockedPerks = new ArrayList<>(maxLevel + 1);
+            EnumMap<GuildPerkType, PerkValue> running = new EnumMap<>(GuildPerkType.class);
+            EnumMap<GuildPerkType, Integer> levelRequired = new EnumMap<>(GuildPerkType.class);
+            List<GuildPerk> unlocked = new ArrayList<>();
+            for (int level = 0; level <= maxLevel; level++) {
+                for (GuildPerk perk : perksByLevel.getOrDefault(level, Collections.emptyList())) {
+                    PerkValue previous = running.getOrDefault(perk.type, new PerkValue(0, 0, null));
+                    boolean numeric = perk.value instanceof Number;
+                    running.put(perk.type, new PerkValue(
+                            previous.accumulatedInt() + (numeric ? perk.getIntValue() : 0),
+                            numeric ? perk.getIntValue() : previous.latestInt(),
+                            perk.value instanceof String ? perk.getStringValue() : previous.latestString()));
+                    levelRequired.putIfAbsent(perk.type, level);
+                    unlocked.add(perk);
+                }
+                levels.add(Collections.unmodifiableMap(new EnumMap<>(running)));
+                unlockedPerks.add(Collections.unmodifiableList(new ArrayList<>(unlocked)));
+            }
+            this.levels = levels;
+            this.unlockedPerks = unlockedPerks;
+            this.levelRequired = Collections.unmodifiableMap(levelRequired);
+        }
+
+        Map<GuildPerkType, PerkValue> at(int guildLevel) {
+            if (guildLevel <= 0) return levels.get(0);
+            return levels.get(Math.min(guildLevel, levels.size() - 1));
+        }
+    }
+
+    private volatile PerkTable table;
 
     public PerkManager() {
-        // Initialize hardcoded perks - later load from config
-        loadDefaultPerks();
+        // Built-in tiers until loadFromFile succeeds
+        this.table = new PerkTable(loadDefaultPerks());
+    }
+
+    /**
+     * Reads, validates and compiles perks.yml, then swaps the new table in with a single volatile write.
+     * Readers are never blocked and never see a half-built table. If the file has any error, nothing is swapped
+     * and the previous table stays live.
+     * @return The problems found; empty if the new table was applied.
+     */
+    public List<String> loadFromFile(File perksFile) {
+        List<String> errors = new ArrayList<>();
+        if (!perksFile.isFile()) {
+            errors.add(perksFile.getName() + " not found");
+            return errors;
+        }
+        ConfigurationSection levels = YamlConfiguration.loadConfiguration(perksFile).getConfigurationSection("levels");
+        if (levels == null) {
+            errors.add("missing 'levels' section");
+            return errors;
+        }
+        Map<Integer, List<GuildPerk>> perksByLevel = new HashMap<>();
+        for (String levelKey : levels.getKeys(false)) {
+            int level;
+            try {
+                level = Integer.parseInt(levelKey);
+            } catch (NumberFormatException e) {
+                errors.add("level '" + levelKey + "' is not a number");
+                continue;
+            }
+            if (level < 1) {
+                errors.add("level " + level + " must be 1 or higher");
+                continue;
+            }
+            ConfigurationSection perks = levels.getConfigurationSection(levelKey);
+            if (perks == null) {
+                errors.add("level " + level + " must map perk types to values");
+                continue;
+            }
+            for (String typeKey : perks.getKeys(false)) {
+                GuildPerkType type;
+                try {
+                    type = GuildPerkType.valueOf(typeKey.toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    errors.add("level " + level + ": unknown perk type '" + typeKey + "'");
+                    continue;
+                }
+                String problem = validateValue(type, perks.get(typeKey));
+                if (problem != null) {
+                    errors.add("level " + level + ", " + type + ": " + problem);
+                    continue;
+                }
+                perksByLevel.computeIfAbsent(level, k -> new ArrayList<>()).add(new GuildPerk(type, perks.get(typeKey)));
+            }
+        }
+        if (!errors.isEmpty()) return errors;
+        this.table = new PerkTable(perksByLevel);
+        return errors;
+    }
+
+    // Returns a description of what is wrong with the value, or null if it is valid for the perk type
+    private static String validateValue(GuildPerkType type, Object value) {
+        switch (type) {
+            case MAX_MEMBERS_INCREASE:
+            case MAX_CLAIMED_CHUNKS_INCREASE:
+                if (!(value instanceof Integer) || (Integer) value < 0) return "expected a whole number of 0 or more, got '" + value + "'";
+                return null;
+            case PASSIVE_HASTE_AURA:
+                if (!(value instanceof Integer) || (Integer) value < 0 || (Integer) value > 255) return "expected an effect amplifier from 0 to 255, got '" + value + "'";
+                return null;
+            case ALLOW_GUILD_SETHOME:
+                if (!(value instanceof Boolean)) return "expected true or false, got '" + value + "'";
+                return null;
+            case GUILD_HOME_PARTICLE:
+                if (!(value instanceof String)) return "expected a particle name, got '" + value + "'";
+                try {
+                    Particle.valueOf(((String) value).toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    return "unknown particle '" + value + "'";
+                }
+                return null;
+            default:
+                return null;
+        }
     }
 
-    private void loadDefaultPerks() {
+    private static Map<Integer, List<GuildPerk>> loadDefaultPerks() {
+        Map<Integer, List<GuildPerk>> perksByLevel = new HashMap<>();
         // Level 2 Perks
         List<GuildPerk> level2Perks = new ArrayList<>();
         level2Perks.add(new GuildPerk(GuildPerkType.MAX_MEMBERS_INCREASE, 5));
@@ -27,9 +163,9 @@ public class PerkManager {
 
         // Level 3 Perks
         List<GuildPerk> level3Perks = new ArrayList<>();
-        level3Perks.add(new GuildPerk(GuildPerkType.ALLOW_GUILD_SETHOME, true)); 
+        level3Perks.add(new GuildPerk(GuildPerkType.ALLOW_GUILD_SETHOME, true));
         perksByLevel.put(3, level3Perks);
-        
+
         // Level 5 Perks
         List<GuildPerk> level5Perks = new ArrayList<>();
         level5Perks.add(new GuildPerk(GuildPerkType.MAX_MEMBERS_INCREASE, 5)); // Another +5 (total +10 from base)
@@ -56,44 +192,54 @@ public class PerkManager {
         perksByLevel.put(8, level8Perks);
 
         // System.out.println("PerkManager: Loaded " + perksByLevel.size() + " perk levels.");
+        return perksByLevel;
     }
 
-    public List<GuildPerk> getUnlockedPerks(int guildLevel) {
-        List<GuildPerk> unlocked = new ArrayList<>();
-        for (int i = 1; i <= guildLevel; i++) {
-            if (perksByLevel.containsKey(i)) {
-                unlocked.addAll(perksByLevel.get(i));
-            }
+    /**
+     * @return The number of levels that unlock at least one perk in the live table.
+     */
+    public int getDefinedLevelCount() {
+        PerkTable current = table;
+        int count = 0;
+        for (int level = 1; level < current.unlockedPerks.size(); level++) {
+            if (current.unlockedPerks.get(level).size() > current.unlockedPerks.get(level - 1).size()) count++;
         }
-        return unlocked;
+        return count;
+    }
+
+    /**
+     * @return Every perk unlocked at the given level, in unlock order. The list is shared and immutable.
+     */
+    public List<GuildPerk> getUnlockedPerks(int guildLevel) {
+        PerkTable current = table;
+        if (guildLevel <= 0) return current.unlockedPerks.get(0);
+        return current.unlockedPerks.get(Math.min(guildLevel, current.unlockedPerks.size() - 1));
+    }
+
+    /**
+     * @return The perk's state at the given level, or null if the guild has not unlocked it.
+     */
+    public PerkValue getPerkValue(int guildLevel, GuildPerkType perkType) {
+        return table.at(guildLevel).get(perkType);
     }
 
     public int getAccumulatedIntValue(int guildLevel, GuildPerkType perkType) {
-        return getUnlockedPerks(guildLevel).stream()
-                .filter(perk -> perk.type == perkType && perk.value instanceof Number)
-                .mapToInt(GuildPerk::getIntValue)
-                .sum();
+        PerkValue value = getPerkValue(guildLevel, perkType);
+        return value == null ? 0 : value.accumulatedInt();
     }
 
     public boolean hasPerk(int guildLevel, GuildPerkType perkType) {
-        return getUnlockedPerks(guildLevel).stream()
-                .anyMatch(perk -> perk.type == perkType);
+        return table.at(guildLevel).containsKey(perkType);
     }
-    
+
     public String getStringPerkValue(int guildLevel, GuildPerkType perkType) {
-         return getUnlockedPerks(guildLevel).stream()
-                .filter(perk -> perk.type == perkType && perk.value instanceof String)
-                .map(GuildPerk::getStringValue)
-                .reduce((first, second) -> second) 
-                .orElse(null);
+        PerkValue value = getPerkValue(guildLevel, perkType);
+        return value == null ? null : value.latestString();
     }
 
      public int getIntPerkValue(int guildLevel, GuildPerkType perkType) {
-        return getUnlockedPerks(guildLevel).stream()
-                .filter(perk -> perk.type == perkType && perk.value instanceof Number)
-                .mapToInt(GuildPerk::getIntValue)
-                .reduce((first, second) -> second) 
-                .orElse(0); 
+        PerkValue value = getPerkValue(guildLevel, perkType);
+        return value == null ? 0 : value.latestInt();
     }
 
     /**
@@ -102,10 +248,6 @@ public class PerkManager {
      * @return The level, or -1 if the perk is not found in the configuration.
      */
     public int getLevelRequiredForPerk(GuildPerkType perkType) {
-        return perksByLevel.entrySet().stream()
-            .filter(entry -> entry.getValue().stream().anyMatch(perk -> perk.type == perkType))
-            .mapToInt(Map.Entry::getKey)
-            .min()
-            .orElse(-1);
+        return table.levelRequired.getOrDefault(perkType, -1);
     }
 }
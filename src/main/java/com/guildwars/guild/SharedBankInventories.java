@@ -0,0 +1,256 @@
+package com.guildwars.guild;
+
+import com.guildwars.GuildWarsPlugin;
+import com.guildwars.services.BankAuditLog;
+import com.guildwars.storage.DatabaseManager;
+import org.bukkit.Material;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * One live bank Inventory per guild, shared by everyone who has the bank open, so two members can never edit
+ * separate copies and overwrite (or duplicate) each other's items. The inventory is built from the guild's bank on
+ * first open and released when the last viewer closes it. While it exists it is the source of truth: edits mark it
+ * dirty and a save is scheduled at most once per save delay, copying the inventory back into the guild and handing
+ * the diff to the write-behind queue. Main thread only.
+ * <p>
+ * For the bank log, each edit snapshots the slots just before the click is applied; the next edit (or the next tick)
+ * compares against it and attributes every changed slot to the player who clicked. Clicks are handled one at a time
+ * on the main thread, so concurrent viewers never get each other's changes.
+ */
+public class SharedBankInventories {
+
+    private static final class LiveBank {
+        final Inventory inventory;
+        int viewers = 0;
+        boolean dirty = false;
+        BukkitTask saveTask;
+        // Slots before the last edit, and who made it; editor is null once the edit has been logged
+        final Material[] types = new Material[Guild.BANK_SIZE];
+        final int[] amounts = new int[Guild.BANK_SIZE];
+        UUID editor;
+        long editedAt;
+        boolean settleScheduled = false;
+
+        LiveBank(Inventory inventory) {
+            this.inventory = inventory;
+        }
+    }
+
+    private final GuildWarsPlugin plugin;
+    private final DatabaseManager dbManager;
+    private final GuildBankCache bankCache;
+    private final BankAuditLog auditLog;
+    private final long saveDelayTicks;
+    private final Map<Guild, LiveBank> live = new HashMap<>();
+
+    private long opened = 0;
+    private long saves = 0;
+    private long coalescedEdits = 0;
+
+    public SharedBankInventories(GuildWarsPlugin plugin, DatabaseManager dbManager, GuildBankCache bankCache, BankAuditLog auditLog) {
+        this.plugin = plugin;
+        this.dbManager = dbManager;
+        this.bankCache = bankCache;
+        this.auditLog = auditLog;
+        this.saveDelayTicks = Math.max(1L, plugin.getConfig().getLong("bank-cache.save-delay-ticks", 40L));
+    }
+
+    /**
+     * Returns the guild's shared bank inventory, creating it from the stored bank if nobody has it open, and counts
+     * the caller as a viewer. Every successful call must be paired with {@link #release}.
+     * @param factory Creates the empty inventory (with its holder) when a new one is needed.
+     * @return The shared inventory, or null if the bank could not be loaded.
+     */
+    public Inventory acquire(Guild guild, Supplier<Inventory> factory) {
+        LiveBank bank = live.get(guild);
+        if (bank == null) {
+            ItemStack[] contents = bankCache.getContents(guild); // Loads the bank on first use
+            if (contents == null) return null;
+            Inventory inventory = factory.get();
+            inventory.setContents(contents); // Copied into the inventory; the guild's array stays untouched until a save
+            bank = new LiveBank(inventory);
+            live.put(guild, bank);
+            bankCache.addViewer(guild); // Keeps the bank resident while the inventory exists
+            opened++;
+        }
+        bank.viewers++;
+        return bank.inventory;
+    }
+
+    /**
+     * Drops one viewer of the guild's shared inventory. The last one out saves and releases it.
+     * Does nothing if the inventory is not the guild's current one (already discarded, or a recycled guild id).
+     */
+    public void release(Guild guild, Inventory inventory) {
+        LiveBank bank = live.get(guild);
+        if (bank == null || bank.inventory != inventory) return;
+        if (--bank.viewers > 0) return;
+        settle(guild, bank);
+        save(guild, bank);
+        live.remove(guild);
+        bankCache.removeViewer(guild);
+    }
+
+    /**
+     * Records an edit to the guild's shared inventory, about to be applied by the given player. Call it before the
+     * change happens (from the click or drag event). The save runs later, once for any number of edits in between.
+     * Does nothing if the inventory is not the guild's current one.
+     */
+    public void markDirty(Guild guild, Inventory inventory, UUID editor) {
+        LiveBank bank = live.get(guild);
+        if (bank == null || bank.inventory != inventory) return;
+        settle(guild, bank); // The previous edit has been applied by now
+        if (auditLog != null && auditLog.isEnabled()) beginEdit(guild, bank, editor);
+        bank.dirty = true;
+        if (bank.saveTask != null) {
+            coalescedEdits++;
+            return;
+        }
+        bank.saveTask = plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
+            LiveBank current = live.get(guild);
+            if (current == null) return;
+            current.saveTask = null;
+            save(guild, current);
+        }, saveDelayTicks);
+    }
+
+    public boolean isOpen(Guild guild) {
+        return live.containsKey(guild);
+    }
+
+    /**
+     * Copies the shared inventory (if any) into the guild, so code that edits the guild's bank array directly sees
+     * what viewers did. Follow the edit with {@link #pushToInventory}.
+     * @return True if unsaved edits were copied. The inventory is then no longer dirty, so the caller must save.
+     */
+    public boolean pullIntoGuild(Guild guild) {
+        LiveBank bank = live.get(guild);
+        if (bank == null || !bank.dirty) return false;
+        copyIntoGuild(guild, bank);
+        return true;
+    }
+
+    /**
+     * Writes the given slots of the guild's bank array into the shared inventory (if any), so viewers see the change.
+     */
+    public void pushToInventory(Guild guild, long dirtySlots) {
+        LiveBank bank = live.get(guild);
+        if (bank == null) return;
+        settle(guild, bank); // So the deposit is not attributed to whoever clicked last
+        for (int slot = 0; slot < Guild.BANK_SIZE; slot++) {
+            if ((dirtySlots & (1L << slot)) == 0) continue;
+            ItemStack item = guild.getBankItem(slot);
+            bank.inventory.setItem(slot, item == null ? null : item.clone());
+        }
+    }
+
+    private void beginEdit(Guild guild, LiveBank bank, UUID editor) {
+        ItemStack[] view = bank.inventory.getContents();
+        for (int slot = 0; slot < Guild.BANK_SIZE; slot++) {
+            ItemStack item = slot < view.length ? view[slot] : null;
+            boolean empty = item == null || item.getType() == Material.AIR;
+            bank.types[slot] = empty ? null : item.getType();
+            bank.amounts[slot] = empty ? 0 : item.getAmount();
+        }
+        bank.editor = editor;
+        bank.editedAt = System.currentTimeMillis();
+        if (bank.settleScheduled) return;
+        bank.settleScheduled = true;
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            bank.settleScheduled = false;
+            if (live.get(guild) == bank) settle(guild, bank);
+        });
+    }
+
+    // Logs every slot that changed since beginEdit against the player who made the edit
+    private void settle(Guild guild, LiveBank bank) {
+        UUID editor = bank.editor;
+        if (editor == null) return;
+        bank.editor = null;
+        ItemStack[] view = bank.inventory.getContents();
+        for (int slot = 0; slot < Guild.BANK_SIZE; slot++) {
+            ItemStack item = slot < view.length ? view[slot] : null;
+            boolean empty = item == null || item.getType() == Material.AIR;
+            Material type = empty ? null : item.getType();
+            int amount = empty ? 0 : item.getAmount();
+            Material before = bank.types[slot];
+            if (type == before) {
+                if (type != null && amount != bank.amounts[slot]) auditLog.record(guild.getName(), editor, type, amount - bank.amounts[slot], slot, bank.editedAt);
+                continue;
+            }
+            if (before != null) auditLog.record(guild.getName(), editor, before, -bank.amounts[slot], slot, bank.editedAt);
+            if (type != null) auditLog.record(guild.getName(), editor, type, amount, slot, bank.editedAt);
+        }
+    }
+
+    // The diff save makes this cheap: only slots that differ from what is stored are queued
+    private void save(Guild guild, LiveBank bank) {
+        if (bank.saveTask != null) {
+            bank.saveTask.cancel();
+            bank.saveTask = null;
+        }
+        if (!bank.dirty) return;
+        copyIntoGuild(guild, bank);
+        if (dbManager != null) dbManager.saveGuildBank(guild);
+        saves++;
+    }
+
+    private void copyIntoGuild(Guild guild, LiveBank bank) {
+        // getContents hands out live views of the inventory's items, so snapshot them
+        ItemStack[] view = bank.inventory.getContents();
+        ItemStack[] snapshot = new ItemStack[Guild.BANK_SIZE];
+        for (int slot = 0; slot < snapshot.length && slot < view.length; slot++) {
+            snapshot[slot] = view[slot] == null ? null : view[slot].clone();
+        }
+        synchronized (guild) {
+            guild.setBankContents(snapshot);
+        }
+        bank.dirty = false;
+    }
+
+    /**
+     * Closes the shared bank for one player, e.g. after they leave or are kicked from the guild.
+     */
+    public void closeFor(Guild guild, UUID playerUuid) {
+        LiveBank bank = live.get(guild);
+        if (bank == null) return;
+        for (HumanEntity viewer : new ArrayList<>(bank.inventory.getViewers())) {
+            if (viewer.getUniqueId().equals(playerUuid)) viewer.closeInventory(); // The close event releases it
+        }
+    }
+
+    /**
+     * Throws away a deleted guild's shared inventory without saving and closes it for everyone still viewing it.
+     */
+    public void discard(Guild guild) {
+        LiveBank bank = live.remove(guild);
+        if (bank == null) return;
+        if (bank.saveTask != null) bank.saveTask.cancel();
+        for (HumanEntity viewer : new ArrayList<>(bank.inventory.getViewers())) viewer.closeInventory();
+    }
+
+    /**
+     * Saves every open bank now. Called on shutdown, before the write queue is drained.
+     */
+    public void saveAll() {
+        for (Map.Entry<Guild, LiveBank> entry : new ArrayList<>(live.entrySet())) {
+            settle(entry.getKey(), entry.getValue());
+            save(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public String getStats() {
+        int viewers = 0;
+        for (LiveBank bank : live.values()) viewers += bank.viewers;
+        return live.size() + " open (" + viewers + " viewers), " + opened + " opened, " + saves + " saves, " + coalescedEdits + " edits coalesced";
+    }
+}
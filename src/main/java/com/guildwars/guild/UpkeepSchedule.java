@@ -0,0 +1,72 @@
+package com.guildwars.guild;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Spreads territory upkeep across the upkeep interval instead of billing every guild at once.
+ * Each guild gets a fixed billing slot (an offset into the interval derived from its name), and is due at the first
+ * slot after its last billed time. Because the last billed time is persisted, a restart bills missed slots once
+ * and never bills the same slot twice.
+ * Main thread only.
+ */
+public class UpkeepSchedule {
+
+    private record Entry(long dueMillis, Guild guild) {}
+
+    private final long intervalMillis;
+    private final int maxPerTick;
+    private final PriorityQueue<Entry> heap = new PriorityQueue<>((a, b) -> Long.compare(a.dueMillis(), b.dueMillis()));
+    private final Map<Guild, Entry> current = new HashMap<>();
+
+    public UpkeepSchedule(long intervalMillis, int maxPerTick) {
+        this.intervalMillis = Math.max(1L, intervalMillis);
+        this.maxPerTick = Math.max(1, maxPerTick);
+    }
+
+    // Names are the only stable guild identity (compact ids are reassigned on every start)
+    public long slotOffset(Guild guild) {
+        long hash = guild.getName().hashCode() * 0x9E3779B97F4A7C15L; // Spread similar names apart
+        return Math.floorMod(hash, intervalMillis);
+    }
+
+    /**
+     * @return The first billing slot strictly after the guild's last billed time.
+     */
+    public long nextDue(Guild guild) {
+        long offset = slotOffset(guild);
+        long cycle = Math.floorDiv(guild.getLastUpkeepMillis() - offset, intervalMillis) + 1;
+        return cycle * intervalMillis + offset;
+    }
+
+    public void track(Guild guild) {
+        Entry entry = new Entry(nextDue(guild), guild);
+        current.put(guild, entry);
+        heap.add(entry);
+    }
+
+    public void forget(Guild guild) {
+        current.remove(guild);
+    }
+
+    public int size() {
+        return current.size();
+    }
+
+    /**
+     * Removes and returns up to the per-tick budget of guilds that are due. Callers bill them and then {@link #track} them again.
+     */
+    public List<Guild> pollDue(long now) {
+        List<Guild> due = new ArrayList<>();
+        while (due.size() < maxPerTick && !heap.isEmpty() && heap.peek().dueMillis() <= now) {
+            Entry entry = heap.poll();
+            if (current.get(entry.guild()) != entry) continue; // Forgotten or re-tracked since
+            current.remove(entry.guild());
+            due.add(entry.guild());
+        }
+        return due;
+    }
+}
@@ -0,0 +1,80 @@
+package com.guildwars.guild.claims;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Server-wide lookup of which guild owns a chunk.
+ * One primitive map per world, keyed by the packed chunk X/Z and storing the owner's compact guild id.
+ * Lookups are O(1) and allocate nothing, so they are safe to call from block and move events.
+ */
+public class ChunkOwnershipIndex {
+
+    public static final int NO_OWNER = LongIntHashMap.NO_VALUE;
+
+    private final Map<String, LongIntHashMap> worlds = new ConcurrentHashMap<>();
+
+    public static long pack(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    public static int unpackX(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    public static int unpackZ(long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * @return The id of the guild owning the chunk, or {@link #NO_OWNER} if it is unclaimed.
+     */
+    public int getOwner(String worldName, int chunkX, int chunkZ) {
+        LongIntHashMap world = worlds.get(worldName);
+        if (world == null) return NO_OWNER;
+        return world.get(pack(chunkX, chunkZ));
+    }
+
+    /**
+     * Registers a claim. Does nothing if another guild already owns the chunk.
+     * @return True if the chunk is now owned by the given guild.
+     */
+    public boolean claim(String worldName, int chunkX, int chunkZ, int guildId) {
+        LongIntHashMap world = worlds.computeIfAbsent(worldName, k -> new LongIntHashMap());
+        int previous = world.putIfAbsent(pack(chunkX, chunkZ), guildId);
+        return previous == NO_OWNER || previous == guildId;
+    }
+
+    /**
+     * Removes a claim, but only if it is held by the given guild.
+     * @return True if a claim was removed.
+     */
+    public boolean release(String worldName, int chunkX, int chunkZ, int guildId) {
+        LongIntHashMap world = worlds.get(worldName);
+        return world != null && world.remove(pack(chunkX, chunkZ), guildId);
+    }
+
+    /**
+     * Drops every claim held by the guild. Scans all claims, so only meant for rare paths like disbanding.
+     * @return The number of claims removed.
+     */
+    public int releaseAll(int guildId) {
+        int removed = 0;
+        for (LongIntHashMap world : worlds.values()) {
+            removed += world.removeAllWithValue(guildId);
+        }
+        return removed;
+    }
+
+    public int size() {
+        int total = 0;
+        for (LongIntHashMap world : worlds.values()) {
+            total += world.size();
+        }
+        return total;
+    }
+
+    public void clear() {
+        worlds.clear();
+    }
+}
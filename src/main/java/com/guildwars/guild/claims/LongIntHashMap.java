@@ -0,0 +1,171 @@
+package com.guildwars.guild.claims;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Minimal open-addressing long -> int map (linear probing, backward-shift deletion).
+ * Values must be non-negative; {@link #NO_VALUE} marks an empty slot.
+ * Writers take an exclusive lock; readers use an optimistic stamp so the hot lookup path is lock- and allocation-free.
+ */
+class LongIntHashMap {
+
+    static final int NO_VALUE = -1;
+    private static final int INITIAL_CAPACITY = 64; // Must be a power of two
+
+    // Keys and values live together so a reader always sees arrays of matching length
+    private static final class Table {
+        final long[] keys;
+        final int[] values;
+        final int mask;
+
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new int[capacity];
+            this.mask = capacity - 1;
+            java.util.Arrays.fill(values, NO_VALUE);
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+    private int size;
+
+    private static int slotFor(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static int find(Table t, long key) {
+        int slot = slotFor(key, t.mask);
+        for (int probes = 0; probes <= t.mask; probes++) {
+            int value = t.values[slot];
+            if (value == NO_VALUE) return NO_VALUE;
+            if (t.keys[slot] == key) return value;
+            slot = (slot + 1) & t.mask;
+        }
+        return NO_VALUE;
+    }
+
+    int get(long key) {
+        long stamp = lock.tryOptimisticRead();
+        int value = find(table, key);
+        if (lock.validate(stamp)) return value;
+        stamp = lock.readLock();
+        try {
+            return find(table, key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return The existing value if the key was already mapped (map unchanged), otherwise {@link #NO_VALUE}.
+     */
+    int putIfAbsent(long key, int value) {
+        if (value < 0) throw new IllegalArgumentException("Values must be non-negative: " + value);
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int slot = slotFor(key, t.mask);
+            while (t.values[slot] != NO_VALUE) {
+                if (t.keys[slot] == key) return t.values[slot];
+                slot = (slot + 1) & t.mask;
+            }
+            t.keys[slot] = key;
+            t.values[slot] = value;
+            if (++size * 2 > t.keys.length) {
+                resize(t.keys.length << 1);
+            }
+            return NO_VALUE;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the key only if it is currently mapped to the expected value.
+     */
+    boolean remove(long key, int expectedValue) {
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int slot = slotFor(key, t.mask);
+            while (t.values[slot] != NO_VALUE) {
+                if (t.keys[slot] == key) {
+                    if (t.values[slot] != expectedValue) return false;
+                    deleteSlot(t, slot);
+                    size--;
+                    return true;
+                }
+                slot = (slot + 1) & t.mask;
+            }
+            return false;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int removeAllWithValue(int value) {
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int removed = 0;
+            int slot = 0;
+            while (slot < t.values.length) {
+                if (t.values[slot] == value) {
+                    // Backward shift may move a later entry into this slot, so re-check it before advancing
+                    deleteSlot(t, slot);
+                    removed++;
+                } else {
+                    slot++;
+                }
+            }
+            size -= removed;
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private static void deleteSlot(Table t, int slot) {
+        int hole = slot;
+        int next = (hole + 1) & t.mask;
+        while (t.values[next] != NO_VALUE) {
+            int home = slotFor(t.keys[next], t.mask);
+            // Move the entry back if its home slot is not cyclically within (hole, next]
+            boolean canMove = (next > hole) ? (home <= hole || home > next) : (home <= hole && home > next);
+            if (canMove) {
+                t.keys[hole] = t.keys[next];
+                t.values[hole] = t.values[next];
+                hole = next;
+            }
+            next = (next + 1) & t.mask;
+        }
+        t.values[hole] = NO_VALUE;
+    }
+
+    private void resize(int newCapacity) {
+        Table old = table;
+        Table grown = new Table(newCapacity);
+        for (int i = 0; i < old.values.length; i++) {
+            if (old.values[i] == NO_VALUE) continue;
+            int slot = slotFor(old.keys[i], grown.mask);
+            while (grown.values[slot] != NO_VALUE) {
+                slot = (slot + 1) & grown.mask;
+            }
+            grown.keys[slot] = old.keys[i];
+            grown.values[slot] = old.values[i];
+        }
+        table = grown;
+    }
+}
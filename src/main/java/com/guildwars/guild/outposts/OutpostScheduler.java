@@ -0,0 +1,178 @@
+package com.guildwars.guild.outposts;
+
+import com.guildwars.guild.Guild;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Runs every outpost from one min-heap ordered by next tick time.
+ * A single delayed task is armed for the earliest due outpost, so an idle server does no work
+ * and each wake-up only touches outposts that are actually due.
+ * Unregistered or rescheduled entries stay in the heap and are skipped when they surface.
+ * The heap is polled off the main thread; the due outposts are then run on the main thread in one batch.
+ */
+public class OutpostScheduler {
+
+    /**
+     * Runs one due outpost.
+     * @return The outpost's next tick timestamp, or a value of 0 or less to stop scheduling it.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        long run(Guild guild, OutpostType type, long now);
+    }
+
+    private record Entry(long dueMillis, Guild guild, OutpostType type) {}
+
+    private static final long MAX_SLEEP_TICKS = 1200L; // Re-check at least once a minute in case ticks fall behind the wall clock
+
+    private final Plugin plugin;
+    private final Handler handler;
+    private final int maxPerRun;
+
+    // All guarded by this
+    private final PriorityQueue<Entry> heap = new PriorityQueue<>((a, b) -> Long.compare(a.dueMillis(), b.dueMillis()));
+    private final Map<Guild, EnumMap<OutpostType, Entry>> current = new HashMap<>();
+    private boolean started = false;
+    private BukkitTask wakeTask;
+    private long wakeAtMillis = Long.MAX_VALUE;
+    private long processed = 0;
+    private long wakeUps = 0;
+
+    public OutpostScheduler(Plugin plugin, Handler handler, int maxPerRun) {
+        this.plugin = plugin;
+        this.handler = handler;
+        this.maxPerRun = Math.max(1, maxPerRun);
+    }
+
+    /**
+     * Arms the scheduler. Outposts already overdue run once the initial delay has passed.
+     */
+    public synchronized void start(long initialDelayTicks) {
+        if (started) return;
+        started = true;
+        schedule(Math.max(1L, initialDelayTicks), System.currentTimeMillis() + initialDelayTicks * 50L);
+    }
+
+    public synchronized void stop() {
+        started = false;
+        cancelWake();
+    }
+
+    /**
+     * Adds or reschedules an outpost. Replaces any earlier registration for the same guild and type.
+     */
+    public synchronized void register(Guild guild, OutpostType type, long dueMillis) {
+        Entry entry = new Entry(dueMillis, guild, type);
+        current.computeIfAbsent(guild, g -> new EnumMap<>(OutpostType.class)).put(type, entry);
+        heap.add(entry);
+        if (started && dueMillis < wakeAtMillis) arm();
+    }
+
+    public synchronized void unregister(Guild guild, OutpostType type) {
+        EnumMap<OutpostType, Entry> entries = current.get(guild);
+        if (entries == null) return;
+        entries.remove(type);
+        if (entries.isEmpty()) current.remove(guild);
+    }
+
+    public synchronized void unregisterAll(Guild guild) {
+        current.remove(guild);
+    }
+
+    public synchronized int getScheduledCount() {
+        int active = 0;
+        for (EnumMap<OutpostType, Entry> entries : current.values()) active += entries.size();
+        return active;
+    }
+
+    public synchronized String getStats() {
+        return getScheduledCount() + " scheduled (" + heap.size() + " heap entries), " + processed + " runs over " + wakeUps + " wake-ups";
+    }
+
+    private boolean isCurrent(Entry entry) {
+        EnumMap<OutpostType, Entry> entries = current.get(entry.guild());
+        return entries != null && entries.get(entry.type()) == entry;
+    }
+
+    // Runs off the main thread: only picks the due entries, then hands them to the main thread as one batch
+    private void runDue() {
+        long now = System.currentTimeMillis();
+        List<Entry> due = new ArrayList<>();
+        synchronized (this) {
+            wakeTask = null;
+            wakeAtMillis = Long.MAX_VALUE;
+            if (!started) return;
+            wakeUps++;
+            while (due.size() < maxPerRun && !heap.isEmpty() && heap.peek().dueMillis() <= now) {
+                Entry entry = heap.poll();
+                if (isCurrent(entry)) due.add(entry);
+            }
+            if (due.isEmpty()) {
+                arm();
+                return;
+            }
+        }
+        plugin.getServer().getScheduler().runTask(plugin, () -> applyDue(due, now));
+    }
+
+    // Main thread: the handlers mutate guild state and call Bukkit APIs
+    private void applyDue(List<Entry> due, long now) {
+        for (Entry entry : due) {
+            long next;
+            try {
+                next = handler.run(entry.guild(), entry.type(), now);
+            } catch (RuntimeException e) {
+                plugin.getLogger().severe("Outpost " + entry.type() + " of " + entry.guild().getName() + " failed: " + e.getMessage());
+                next = now + 60_000L; // Try again later rather than dropping the outpost
+            }
+            synchronized (this) {
+                processed++;
+                // Only reschedule if nothing re-registered or removed the outpost while it was pending
+                if (!isCurrent(entry)) continue;
+                if (next > 0) {
+                    Entry rescheduled = new Entry(next, entry.guild(), entry.type());
+                    current.get(entry.guild()).put(entry.type(), rescheduled);
+                    heap.add(rescheduled);
+                } else {
+                    unregister(entry.guild(), entry.type());
+                }
+            }
+        }
+        synchronized (this) {
+            if (started) arm();
+        }
+    }
+
+    // Drops stale heap heads and arms a single wake-up for the earliest live entry. Caller holds the lock.
+    private void arm() {
+        while (!heap.isEmpty() && !isCurrent(heap.peek())) heap.poll();
+        if (heap.isEmpty()) {
+            cancelWake();
+            return;
+        }
+        long due = heap.peek().dueMillis();
+        if (wakeTask != null && wakeAtMillis <= due) return;
+        long delayTicks = Math.min(MAX_SLEEP_TICKS, Math.max(1L, (due - System.currentTimeMillis() + 49L) / 50L));
+        schedule(delayTicks, System.currentTimeMillis() + delayTicks * 50L);
+    }
+
+    private void schedule(long delayTicks, long wakeAt) {
+        cancelWake();
+        wakeAtMillis = wakeAt;
+        wakeTask = plugin.getServer().getScheduler().runTaskLaterAsynchronously(plugin, this::runDue, delayTicks);
+    }
+
+    private void cancelWake() {
+        if (wakeTask != null) wakeTask.cancel();
+        wakeTask = null;
+        wakeAtMillis = Long.MAX_VALUE;
+    }
+}
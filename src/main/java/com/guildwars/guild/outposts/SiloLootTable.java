@@ -0,0 +1,219 @@
+package com.guildwars.guild.outposts;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Resource Silo loot, compiled once from the config (and again on reload) so a silo run does no parsing or lookups.
+ * Loot is organised in tiers that unlock at a guild level; a roll uses the highest tier the guild has reached.
+ * A tier either produces every resource it lists (the original behaviour) or, with "picks" set, draws that many
+ * resources by weight using Vose's alias method (O(1) per draw).
+ * Instances are immutable and safe to share between threads.
+ */
+public final class SiloLootTable {
+
+    public record Entry(Material material, int minAmount, int maxAmount, double weight) {}
+
+    private record Tier(int minLevel, Entry[] entries, int picks, double[] probability, int[] alias) {}
+
+    private static final SiloLootTable EMPTY = new SiloLootTable(new Tier[0]);
+
+    private final Tier[] tiers; // Sorted by minLevel, ascending
+
+    private SiloLootTable(Tier[] tiers) {
+        this.tiers = tiers;
+    }
+
+    /**
+     * Compiles the outposts.RESOURCE_SILO section. The top-level generated-resources form the level 1 tier;
+     * entries under tiers.&lt;level&gt; add higher tiers. Invalid entries are logged and skipped.
+     */
+    public static SiloLootTable compile(ConfigurationSection siloConfig, Logger logger) {
+        return compile(siloConfig, logger, Material::isItem);
+    }
+
+    // Material.isItem goes through the server's item registry, so tests supply their own check
+    static SiloLootTable compile(ConfigurationSection siloConfig, Logger logger, Predicate<Material> isItem) {
+        if (siloConfig == null) {
+            logger.warning("Resource Silo config section is missing; silos will produce nothing.");
+            return EMPTY;
+        }
+        List<Tier> tiers = new ArrayList<>();
+        Tier base = compileTier(1, siloConfig, "base", logger, isItem);
+        if (base != null) tiers.add(base);
+        ConfigurationSection tierConfig = siloConfig.getConfigurationSection("tiers");
+        if (tierConfig != null) {
+            for (String key : tierConfig.getKeys(false)) {
+                int minLevel;
+                try {
+                    minLevel = Integer.parseInt(key);
+                } catch (NumberFormatException e) {
+                    logger.warning("Resource Silo tier '" + key + "' is not a guild level; skipping.");
+                    continue;
+                }
+                Tier tier = compileTier(minLevel, tierConfig.getConfigurationSection(key), "tier " + key, logger, isItem);
+                if (tier != null) tiers.add(tier);
+            }
+        }
+        if (tiers.isEmpty()) {
+            logger.warning("Resource Silo has no valid 'generated-resources'; silos will produce nothing.");
+            return EMPTY;
+        }
+        tiers.sort((a, b) -> Integer.compare(a.minLevel(), b.minLevel()));
+        return new SiloLootTable(tiers.toArray(new Tier[0]));
+    }
+
+    private static Tier compileTier(int minLevel, ConfigurationSection section, String label, Logger logger, Predicate<Material> isItem) {
+        if (section == null) return null;
+        ConfigurationSection resources = section.getConfigurationSection("generated-resources");
+        if (resources == null) return null;
+        List<Entry> entries = new ArrayList<>();
+        for (String materialName : resources.getKeys(false)) {
+            Material material = Material.matchMaterial(materialName.toUpperCase());
+            if (material == null || !isItem.test(material)) {
+                logger.warning("Resource Silo " + label + ": unknown item '" + materialName + "'; skipping.");
+                continue;
+            }
+            String range;
+            double weight = 1.0;
+            ConfigurationSection entryConfig = resources.getConfigurationSection(materialName);
+            if (entryConfig != null) {
+                range = entryConfig.getString("amount", "1-1");
+                weight = entryConfig.getDouble("weight", 1.0);
+            } else {
+                range = resources.getString(materialName, "1-1");
+            }
+            String[] parts = range.split("-");
+            int min, max;
+            try {
+                min = Integer.parseInt(parts[0].trim());
+                max = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : min;
+            } catch (NumberFormatException e) {
+                logger.warning("Resource Silo " + label + ": invalid amount '" + range + "' for " + materialName + "; skipping.");
+                continue;
+            }
+            if (min <= 0) min = 1;
+            if (max < min) max = min;
+            if (!(weight > 0)) {
+                logger.warning("Resource Silo " + label + ": weight for " + materialName + " must be positive; skipping.");
+                continue;
+            }
+            entries.add(new Entry(material, min, max, weight));
+        }
+        if (entries.isEmpty()) return null;
+        Entry[] compiled = entries.toArray(new Entry[0]);
+        int picks = Math.max(0, section.getInt("picks", 0));
+        double[] probability = new double[compiled.length];
+        int[] alias = new int[compiled.length];
+        if (picks > 0) buildAliasTable(compiled, probability, alias);
+        return new Tier(minLevel, compiled, picks, probability, alias);
+    }
+
+    // Vose's alias method: each column keeps its own entry with probability[i], otherwise yields alias[i]
+    private static void buildAliasTable(Entry[] entries, double[] probability, int[] alias) {
+        int n = entries.length;
+        double total = 0;
+        for (Entry entry : entries) total += entry.weight();
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0, largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = entries[i].weight() * n / total;
+            if (scaled[i] < 1.0) small[smallCount++] = i;
+            else large[largeCount++] = i;
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0) small[smallCount++] = more;
+            else large[largeCount++] = more;
+        }
+        // Leftovers are 1.0 up to rounding error
+        while (largeCount > 0) probability[large[--largeCount]] = 1.0;
+        while (smallCount > 0) probability[small[--smallCount]] = 1.0;
+    }
+
+    /**
+     * A reproducible seed for one silo run: the same guild and run time always roll the same loot.
+     */
+    public static long seedFor(String guildName, long runTimestamp) {
+        return (guildName.hashCode() * 0x9E3779B97F4A7C15L) ^ runTimestamp;
+    }
+
+    /**
+     * Rolls loot for a guild at the given level.
+     * @return The items produced (one stack per resource, amounts may exceed the max stack size), or an empty list.
+     */
+    public List<ItemStack> roll(int guildLevel, SplittableRandom rng) {
+        Tier tier = tierFor(guildLevel);
+        if (tier == null) return Collections.emptyList();
+        Entry[] entries = tier.entries();
+        int[] amounts = rollAmounts(tier, rng);
+        List<ItemStack> items = new ArrayList<>();
+        for (int i = 0; i < entries.length; i++) {
+            if (amounts[i] > 0) items.add(new ItemStack(entries[i].material(), amounts[i]));
+        }
+        return items;
+    }
+
+    /**
+     * The amounts a roll produces, indexed like {@link #entriesFor}; what {@link #roll} turns into item stacks.
+     */
+    int[] rollAmounts(int guildLevel, SplittableRandom rng) {
+        Tier tier = tierFor(guildLevel);
+        return tier == null ? new int[0] : rollAmounts(tier, rng);
+    }
+
+    private static int[] rollAmounts(Tier tier, SplittableRandom rng) {
+        Entry[] entries = tier.entries();
+        int[] amounts = new int[entries.length];
+        if (tier.picks() == 0) {
+            for (int i = 0; i < entries.length; i++) amounts[i] = rollAmount(entries[i], rng);
+        } else {
+            for (int p = 0; p < tier.picks(); p++) {
+                int column = rng.nextInt(entries.length);
+                int i = rng.nextDouble() < tier.probability()[column] ? column : tier.alias()[column];
+                amounts[i] += rollAmount(entries[i], rng);
+            }
+        }
+        return amounts;
+    }
+
+    private static int rollAmount(Entry entry, SplittableRandom rng) {
+        return entry.minAmount() == entry.maxAmount() ? entry.minAmount() : rng.nextInt(entry.minAmount(), entry.maxAmount() + 1);
+    }
+
+    private Tier tierFor(int guildLevel) {
+        Tier best = null;
+        for (Tier tier : tiers) {
+            if (tier.minLevel() > guildLevel) break;
+            best = tier;
+        }
+        return best;
+    }
+
+    /**
+     * @return The resources of the tier a guild at this level rolls from, for display.
+     */
+    public List<Entry> entriesFor(int guildLevel) {
+        Tier tier = tierFor(guildLevel);
+        return tier == null ? Collections.emptyList() : Arrays.asList(tier.entries().clone());
+    }
+
+    public int tierCount() {
+        return tiers.length;
+    }
+}
@@ -0,0 +1,130 @@
+package com.guildwars.guild.wars;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Symmetric bit matrix of active wars, indexed by compact guild id.
+ * isAtWar is a single bit test, cheap enough for every PvP damage event.
+ * Writes are synchronized; reads are lock-free against the latest published rows.
+ * Also holds the running score of each war, so score reads never wait on the database.
+ */
+public class WarMatrix {
+
+    private volatile long[][] rows = new long[0][];
+    // Keyed by pairKey; value is {score of the lower id, score of the higher id}. Guarded by this.
+    private final Map<Long, int[]> scores = new HashMap<>();
+
+    private static long pairKey(int guildIdA, int guildIdB) {
+        int low = Math.min(guildIdA, guildIdB);
+        int high = Math.max(guildIdA, guildIdB);
+        return ((long) low << 32) | high;
+    }
+
+    public boolean isAtWar(int guildIdA, int guildIdB) {
+        if (guildIdA < 0 || guildIdB < 0) return false;
+        long[][] current = rows;
+        if (guildIdA >= current.length) return false;
+        long[] row = current[guildIdA];
+        int word = guildIdB >>> 6;
+        return word < row.length && (row[word] & (1L << guildIdB)) != 0;
+    }
+
+    public synchronized void setAtWar(int guildIdA, int guildIdB, boolean atWar) {
+        if (guildIdA < 0 || guildIdB < 0 || guildIdA == guildIdB) return;
+        ensureCapacity(Math.max(guildIdA, guildIdB) + 1);
+        setBit(rows[guildIdA], guildIdB, atWar);
+        setBit(rows[guildIdB], guildIdA, atWar);
+        // Starting a war resets its score, matching what is persisted
+        if (atWar) scores.put(pairKey(guildIdA, guildIdB), new int[2]);
+        else scores.remove(pairKey(guildIdA, guildIdB));
+    }
+
+    /**
+     * Overwrites the score of an existing war. Used when loading from the database.
+     */
+    public synchronized void setScores(int guildIdA, int guildIdB, int scoreA, int scoreB) {
+        int[] score = scores.get(pairKey(guildIdA, guildIdB));
+        if (score == null) return;
+        score[guildIdA < guildIdB ? 0 : 1] = scoreA;
+        score[guildIdA < guildIdB ? 1 : 0] = scoreB;
+    }
+
+    /**
+     * Adds points to the scorer's side of the war.
+     * @return The scorer's new score, or -1 if the two guilds are not at war.
+     */
+    public synchronized int addScore(int scorerId, int opponentId, int points) {
+        int[] score = scores.get(pairKey(scorerId, opponentId));
+        if (score == null) return -1;
+        int side = scorerId < opponentId ? 0 : 1;
+        score[side] += points;
+        return score[side];
+    }
+
+    /**
+     * @return The guild's score in its war against the opponent, or 0 if they are not at war.
+     */
+    public synchronized int getScore(int guildId, int opponentId) {
+        int[] score = scores.get(pairKey(guildId, opponentId));
+        if (score == null) return 0;
+        return score[guildId < opponentId ? 0 : 1];
+    }
+
+    /**
+     * Ends every war involving the guild. Called when a guild is deleted so its id can be reused cleanly.
+     */
+    public synchronized void clearGuild(int guildId) {
+        long[][] current = rows;
+        if (guildId < 0 || guildId >= current.length) return;
+        for (int enemyId : enemiesOf(guildId)) {
+            setBit(current[enemyId], guildId, false);
+            scores.remove(pairKey(guildId, enemyId));
+        }
+        Arrays.fill(current[guildId], 0L);
+    }
+
+    public synchronized void clearAll() {
+        rows = new long[0][];
+        scores.clear();
+    }
+
+    /**
+     * @return The ids of all guilds at war with the given guild, in ascending order.
+     */
+    public int[] enemiesOf(int guildId) {
+        long[][] current = rows;
+        if (guildId < 0 || guildId >= current.length) return new int[0];
+        long[] row = current[guildId];
+        int count = 0;
+        for (long word : row) count += Long.bitCount(word);
+        int[] enemies = new int[count];
+        int i = 0;
+        for (int w = 0; w < row.length && i < count; w++) {
+            long word = row[w];
+            while (word != 0 && i < count) {
+                enemies[i++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return enemies;
+    }
+
+    private static void setBit(long[] row, int bit, boolean value) {
+        if (value) row[bit >>> 6] |= 1L << bit;
+        else row[bit >>> 6] &= ~(1L << bit);
+    }
+
+    private void ensureCapacity(int guildCount) {
+        long[][] current = rows;
+        if (guildCount <= current.length) return;
+        int capacity = Math.max(64, Integer.highestOneBit(guildCount - 1) << 1);
+        int words = (capacity + 63) >>> 6;
+        long[][] grown = new long[capacity][];
+        for (int i = 0; i < capacity; i++) {
+            grown[i] = (i < current.length) ? Arrays.copyOf(current[i], words) : new long[words];
+        }
+        rows = grown;
+    }
+}
@@ -0,0 +1,159 @@
+package com.guildwars.services;
+
+import com.guildwars.GuildWarsPlugin;
+import com.guildwars.storage.DatabaseManager;
+import org.bukkit.Material;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Who put what into, and took what out of, each guild bank. The click handler only writes an entry into a
+ * single-producer ring buffer (no locks, no allocation beyond the entry); a background task drains it every
+ * flush interval and writes the batch to the guild_bank_log table through the write-behind queue.
+ * If the buffer is full the entry is dropped and counted rather than making the click wait.
+ */
+public class BankAuditLog {
+
+    /**
+     * One slot change made by a player. Amount is positive for a deposit and negative for a withdrawal.
+     * The id is the log row's, so 0 until the entry has been written.
+     */
+    public record Entry(long id, String guildName, UUID player, Material material, int amount, int slot, long timestamp) {}
+
+    // The log a player is paging through and the id of the last entry on each page they have seen
+    private record Cursor(String guildName, List<Long> pageEnds) {}
+
+    private final GuildWarsPlugin plugin;
+    private final DatabaseManager dbManager;
+    private final boolean enabled;
+    private final int pageSize;
+    private final long flushIntervalTicks;
+
+    // Single producer (main thread), single consumer (drain, serialized by drainLock)
+    private final Entry[] ring;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // Next slot to write; only the main thread advances it
+    private final AtomicLong tail = new AtomicLong(); // Next slot to read; only the drain advances it
+    private final Object drainLock = new Object();
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+
+    private final Map<UUID, Cursor> cursors = new HashMap<>(); // Main thread only
+
+    public BankAuditLog(GuildWarsPlugin plugin, DatabaseManager dbManager) {
+        this.plugin = plugin;
+        this.dbManager = dbManager;
+        this.enabled = plugin.getConfig().getBoolean("bank-log.enabled", true) && dbManager != null;
+        this.pageSize = Math.max(1, plugin.getConfig().getInt("bank-log.page-size", 10));
+        this.flushIntervalTicks = Math.max(1L, plugin.getConfig().getLong("bank-log.flush-interval-ticks", 20L));
+        int capacity = Integer.highestOneBit(Math.max(64, plugin.getConfig().getInt("bank-log.buffer-size", 4096)));
+        this.ring = new Entry[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public void start() {
+        if (!enabled) return;
+        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::flush, flushIntervalTicks, flushIntervalTicks);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues an entry. Main thread only. Never blocks.
+     * @return False if logging is off or the buffer was full and the entry was dropped.
+     */
+    public boolean record(String guildName, UUID player, Material material, int amount, int slot, long timestamp) {
+        if (!enabled || amount == 0) return false;
+        long h = head.get();
+        if (h - tail.get() >= ring.length) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        ring[(int) (h & mask)] = new Entry(0L, guildName, player, material, amount, slot, timestamp);
+        head.lazySet(h + 1); // Publishes the entry to the drain
+        return true;
+    }
+
+    /**
+     * Moves everything buffered so far into the write queue. Runs on the drain timer, and once more on shutdown.
+     */
+    public void flush() {
+        synchronized (drainLock) {
+            long t = tail.get();
+            long h = head.get();
+            if (t == h) return;
+            List<Entry> batch = new ArrayList<>((int) (h - t));
+            for (; t < h; t++) {
+                int index = (int) (t & mask);
+                batch.add(ring[index]);
+                ring[index] = null;
+            }
+            tail.lazySet(t); // Frees the slots for the producer
+            dbManager.saveBankLogEntries(batch);
+            written.addAndGet(batch.size());
+        }
+    }
+
+    /**
+     * Reads one page of a guild's log, newest first, on a background thread. Pages are keyed by the last entry id
+     * of the page before, remembered per viewer, so each page is a single index seek however deep it is. Pages the
+     * viewer skipped over are stepped through once to find where the requested one starts. Main thread only.
+     * @param onLoaded Runs on the main thread with up to one page of entries, plus one extra if a next page exists.
+     */
+    public void queryAsync(UUID viewer, String guildName, int page, Consumer<List<Entry>> onLoaded) {
+        Cursor cursor = cursors.get(viewer);
+        if (cursor == null || !cursor.guildName().equals(guildName)) {
+            cursor = new Cursor(guildName, new ArrayList<>());
+            cursors.put(viewer, cursor);
+        }
+        Cursor current = cursor;
+        int known = Math.min(Math.max(1, page) - 1, cursor.pageEnds().size());
+        int skip = Math.max(1, page) - 1 - known;
+        long startBefore = known == 0 ? Long.MAX_VALUE : cursor.pageEnds().get(known - 1);
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            List<Long> pageEnds = new ArrayList<>();
+            long beforeId = startBefore;
+            boolean pastEnd = false;
+            for (int i = 0; i < skip; i++) {
+                List<Entry> skipped = dbManager.loadBankLog(guildName, beforeId, pageSize);
+                if (skipped.size() < pageSize) {
+                    pastEnd = true;
+                    break;
+                }
+                beforeId = skipped.get(pageSize - 1).id();
+                pageEnds.add(beforeId);
+            }
+            List<Entry> entries = pastEnd ? List.of() : dbManager.loadBankLog(guildName, beforeId, pageSize + 1);
+            if (entries.size() > pageSize) pageEnds.add(entries.get(pageSize - 1).id());
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (cursors.get(viewer) == current) {
+                    current.pageEnds().subList(known, current.pageEnds().size()).clear();
+                    current.pageEnds().addAll(pageEnds);
+                }
+                onLoaded.accept(entries);
+            });
+        });
+    }
+
+    public void forgetViewer(UUID viewer) {
+        cursors.remove(viewer);
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public String getStats() {
+        if (!enabled) return "disabled";
+        return (head.get() - tail.get()) + " buffered (capacity " + ring.length + "), " + written.get() + " written, " + dropped.get() + " dropped";
+    }
+}
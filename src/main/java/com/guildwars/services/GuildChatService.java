@@ -0,0 +1,146 @@
+package com.guildwars.services;
+
+import com.guildwars.GuildWarsPlugin;
+import com.guildwars.guild.Guild;
+import com.guildwars.guild.GuildManager;
+import com.guildwars.guild.OnlineMemberRegistry;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextColor;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Guild chat channels. A message is rendered into one Adventure component, the recipient list is built once from
+ * the online member registry, and the component is sent to each recipient. Only concurrent or lock-free state is
+ * read, so this runs on the async chat thread as well as the main thread.
+ */
+public class GuildChatService {
+
+    public enum Channel {
+        GUILD("G", NamedTextColor.GREEN, Guild.Role.MEMBER),
+        OFFICER("O", NamedTextColor.AQUA, Guild.Role.OFFICER),
+        WAR("W", NamedTextColor.RED, Guild.Role.MEMBER); // Your guild and every guild it is at war with
+
+        private final Component tag;
+        private final TextColor color;
+        private final Guild.Role minimumRole;
+
+        Channel(String tag, TextColor color, Guild.Role minimumRole) {
+            this.tag = Component.text("[" + tag + "] ", color);
+            this.color = color;
+            this.minimumRole = minimumRole;
+        }
+
+        public Guild.Role getMinimumRole() {
+            return minimumRole;
+        }
+    }
+
+    private final GuildManager guildManager;
+    private final int burst;
+    private final long refillMillis;
+
+    private final Map<UUID, Channel> toggled = new ConcurrentHashMap<>();
+    // Token bucket per sender: {tokens, last refill time}
+    private final Map<UUID, long[]> buckets = new ConcurrentHashMap<>();
+
+    public GuildChatService(GuildWarsPlugin plugin, GuildManager guildManager) {
+        this.guildManager = guildManager;
+        this.burst = Math.max(1, plugin.getConfig().getInt("chat.rate-limit.burst", 5));
+        this.refillMillis = Math.max(1L, plugin.getConfig().getLong("chat.rate-limit.refill-ms", 1000L));
+    }
+
+    /**
+     * Sends a message on a channel, after checking membership, rank and the sender's rate limit.
+     * Any refusal is explained to the sender.
+     * @return True if the message was delivered.
+     */
+    public boolean send(Player sender, Channel channel, String message) {
+        UUID senderUuid = sender.getUniqueId();
+        Guild guild = guildManager.getGuildByPlayer(senderUuid);
+        if (guild == null) {
+            toggled.remove(senderUuid);
+            sender.sendMessage(ChatColor.RED + "You are not in a guild.");
+            return false;
+        }
+        OnlineMemberRegistry.Member self = guildManager.getOnlineMemberRegistry().get(guild, senderUuid);
+        Guild.Role senderRole = self != null ? self.role() : Guild.Role.MEMBER;
+        if (!senderRole.atLeast(channel.minimumRole)) {
+            toggled.remove(senderUuid, channel); // Demoted since toggling
+            sender.sendMessage(ChatColor.RED + "Only officers can use officer chat.");
+            return false;
+        }
+        if (!tryAcquire(senderUuid)) {
+            sender.sendMessage(ChatColor.RED + "You are sending guild messages too quickly.");
+            return false;
+        }
+
+        List<Player> recipients = new ArrayList<>();
+        for (OnlineMemberRegistry.Member member : guildManager.getOnlineMembers(guild)) {
+            if (member.role().atLeast(channel.minimumRole)) recipients.add(member.player());
+        }
+        if (channel == Channel.WAR) {
+            for (Guild enemy : guildManager.getGuildsAtWarWith(guild)) {
+                for (OnlineMemberRegistry.Member member : guildManager.getOnlineMembers(enemy)) recipients.add(member.player());
+            }
+        }
+
+        Component line = channel.tag
+                .append(Component.text(guild.getChatPrefix() + " ", NamedTextColor.GOLD))
+                .append(sender.displayName())
+                .append(Component.text(": ", NamedTextColor.GRAY))
+                .append(Component.text(message, channel == Channel.GUILD ? NamedTextColor.WHITE : channel.color));
+        for (Player recipient : recipients) recipient.sendMessage(line);
+        return true;
+    }
+
+    private boolean tryAcquire(UUID senderUuid) {
+        long now = System.currentTimeMillis();
+        boolean[] allowed = new boolean[1];
+        buckets.compute(senderUuid, (uuid, bucket) -> {
+            if (bucket == null) bucket = new long[]{burst, now};
+            long refilled = (now - bucket[1]) / refillMillis;
+            if (refilled > 0) {
+                bucket[0] = Math.min(burst, bucket[0] + refilled);
+                bucket[1] += refilled * refillMillis;
+            }
+            if (bucket[0] >= burst) bucket[1] = now; // A full bucket does not bank idle time
+            if (bucket[0] > 0) {
+                bucket[0]--;
+                allowed[0] = true;
+            }
+            return bucket;
+        });
+        return allowed[0];
+    }
+
+    /**
+     * Switches the sender's normal chat to the channel, or back to public chat if it was already on that channel.
+     * @return The channel now active, or null for public chat.
+     */
+    public Channel toggle(Player player, Channel channel) {
+        UUID playerUuid = player.getUniqueId();
+        if (toggled.get(playerUuid) == channel) {
+            toggled.remove(playerUuid);
+            return null;
+        }
+        toggled.put(playerUuid, channel);
+        return channel;
+    }
+
+    public Channel getToggledChannel(UUID playerUuid) {
+        return toggled.get(playerUuid);
+    }
+
+    public void forget(UUID playerUuid) {
+        toggled.remove(playerUuid);
+        buckets.remove(playerUuid);
+    }
+}
@@ -0,0 +1,113 @@
+package com.guildwars.services;
+
+import com.guildwars.GuildWarsPlugin;
+import com.guildwars.guild.Guild;
+import com.guildwars.guild.GuildManager;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Grants the PASSIVE_HASTE_AURA perk to guild members standing in their own guild's territory.
+ * Runs on the main thread every few seconds and only visits online players; each visit is two hash lookups
+ * (player to guild, chunk to owner). The effect is given a longer duration than the run interval and is only
+ * re-applied when it is about to run out, so most runs change nothing.
+ */
+public class HasteAuraService implements Runnable {
+
+    private final GuildManager guildManager;
+    private final int durationTicks;
+    private final int refreshBelowTicks;
+
+    // Players currently holding our effect, with the amplifier we gave them. Main thread only.
+    private Map<UUID, Integer> granted = new HashMap<>();
+
+    private long runs = 0;
+    private long playersVisited = 0;
+    private long applied = 0;
+    private long removed = 0;
+    private long lastRunNanos = 0;
+    private long maxRunNanos = 0;
+    private long totalRunNanos = 0;
+    private int lastPlayerCount = 0;
+
+    public HasteAuraService(GuildWarsPlugin plugin, GuildManager guildManager) {
+        this.guildManager = guildManager;
+        int intervalTicks = getIntervalTicks(plugin);
+        // Refresh once fewer than two runs' worth of ticks remain, so a late run never leaves a gap
+        this.refreshBelowTicks = intervalTicks * 2;
+        this.durationTicks = Math.max(refreshBelowTicks + intervalTicks, plugin.getConfig().getInt("perks.haste-aura.duration-ticks", 200));
+    }
+
+    public static int getIntervalTicks(GuildWarsPlugin plugin) {
+        return Math.max(1, plugin.getConfig().getInt("perks.haste-aura.interval-ticks", 40));
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        Map<UUID, Integer> stillGranted = new HashMap<>();
+        int visited = 0;
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            visited++;
+            UUID playerId = player.getUniqueId();
+            Integer previous = granted.get(playerId);
+            int amplifier = auraAmplifierAt(player);
+            if (amplifier < 0) {
+                if (previous != null) removeOurEffect(player, previous);
+                continue;
+            }
+            if (previous != null && previous != amplifier) removeOurEffect(player, previous);
+            PotionEffect current = player.getPotionEffect(PotionEffectType.HASTE);
+            if (current != null && current.getAmplifier() > amplifier) continue; // A stronger Haste from elsewhere wins
+            if (current == null || current.getAmplifier() < amplifier
+                    || (!current.isInfinite() && current.getDuration() <= refreshBelowTicks)) {
+                player.addPotionEffect(new PotionEffect(PotionEffectType.HASTE, durationTicks, amplifier, true, false, true));
+                applied++;
+            }
+            stillGranted.put(playerId, amplifier);
+        }
+        granted = stillGranted; // Players who logged out simply drop off; their effect expires on its own
+
+        long elapsed = System.nanoTime() - start;
+        runs++;
+        playersVisited += visited;
+        lastPlayerCount = visited;
+        lastRunNanos = elapsed;
+        totalRunNanos += elapsed;
+        if (elapsed > maxRunNanos) maxRunNanos = elapsed;
+    }
+
+    // The aura amplifier for this player at their current position, or -1 if they should not have it
+    private int auraAmplifierAt(Player player) {
+        Guild guild = guildManager.getGuildByPlayer(player.getUniqueId());
+        if (guild == null) return -1;
+        int amplifier = guildManager.getPassiveHasteAuraAmplifier(guild);
+        if (amplifier < 0) return -1;
+        Location loc = player.getLocation();
+        Guild owner = guildManager.getGuildOwningChunk(loc.getWorld(), loc.getBlockX() >> 4, loc.getBlockZ() >> 4);
+        return owner == guild ? amplifier : -1;
+    }
+
+    // Only strips Haste that looks like ours, so effects from beacons or potions are left alone
+    private void removeOurEffect(Player player, int amplifier) {
+        PotionEffect current = player.getPotionEffect(PotionEffectType.HASTE);
+        if (current == null || current.getAmplifier() != amplifier || current.isInfinite() || current.getDuration() > durationTicks) return;
+        player.removePotionEffect(PotionEffectType.HASTE);
+        removed++;
+    }
+
+    public String getStats() {
+        double avgMicros = runs == 0 ? 0 : totalRunNanos / 1000.0 / runs;
+        return granted.size() + " with aura, " + lastPlayerCount + " players last run, " + runs + " runs ("
+                + playersVisited + " visits, " + applied + " applied, " + removed + " removed), "
+                + String.format("%.1f", lastRunNanos / 1000.0) + "us last / " + String.format("%.1f", avgMicros)
+                + "us avg / " + String.format("%.1f", maxRunNanos / 1000.0) + "us max";
+    }
+}
@@ -0,0 +1,245 @@
+package com.guildwars.services;
+
+import com.guildwars.GuildWarsPlugin;
+import com.guildwars.guild.Guild;
+import com.guildwars.guild.GuildManager;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Draws the GUILD_HOME_PARTICLE perk around guild homes, for players within a radius of a home in a loaded chunk.
+ * Homes are kept in a spatial hash (cells at least one radius wide), and a periodic scan walks online players,
+ * not homes, to find which homes have viewers. Between scans only homes with viewers are drawn, a few points per
+ * frame, and a global per-tick particle budget caps the total. With nobody near a home, a tick costs nothing.
+ * Shape offsets are computed once per particle effect. Main thread only.
+ */
+public class HomeParticleRenderer implements Runnable {
+
+    private static final class Home {
+        final World world;
+        final double x, y, z;
+        final Particle particle;
+        final double[] shape; // x, y, z offsets, three per point
+        final List<Player> viewers = new ArrayList<>();
+        int frameCursor = 0;
+
+        Home(World world, double x, double y, double z, Particle particle, double[] shape) {
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.particle = particle;
+            this.shape = shape;
+        }
+    }
+
+    private final GuildWarsPlugin plugin;
+    private final GuildManager guildManager;
+    private final double radius;
+    private final double radiusSquared;
+    private final int cellSize;
+    private final int scanIntervalTicks;
+    private final int indexRefreshTicks;
+    private final int frameIntervalTicks;
+    private final int pointsPerFrame;
+    private final int maxParticlesPerTick;
+    private final int shapePoints;
+    private final double shapeRadius;
+    private final double shapeHeight;
+    private final String defaultShape;
+    private final ConfigurationSection shapeOverrides;
+
+    private final Map<Particle, double[]> shapes = new EnumMap<>(Particle.class);
+    private final Map<String, Map<Long, List<Home>>> cellsByWorld = new HashMap<>();
+    private final List<Home> active = new ArrayList<>();
+    private int indexedHomes = 0;
+    private boolean dirty = true;
+    private long tick = 0;
+    private int renderCursor = 0;
+
+    private long scans = 0;
+    private long particlesSent = 0;
+    private long budgetLimitedTicks = 0;
+    private long lastScanNanos = 0;
+    private int lastViewerCount = 0;
+
+    public HomeParticleRenderer(GuildWarsPlugin plugin, GuildManager guildManager) {
+        this.plugin = plugin;
+        this.guildManager = guildManager;
+        FileConfiguration config = plugin.getConfig();
+        String path = "perks.home-particles.";
+        this.radius = Math.max(1.0, config.getDouble(path + "view-radius", 32.0));
+        this.radiusSquared = radius * radius;
+        this.cellSize = Math.max(16, (int) Math.ceil(radius));
+        this.scanIntervalTicks = Math.max(1, config.getInt(path + "scan-interval-ticks", 20));
+        this.indexRefreshTicks = Math.max(scanIntervalTicks, config.getInt(path + "index-refresh-ticks", 200));
+        this.frameIntervalTicks = Math.max(1, config.getInt(path + "frame-interval-ticks", 4));
+        this.pointsPerFrame = Math.max(1, config.getInt(path + "points-per-frame", 4));
+        this.maxParticlesPerTick = Math.max(1, config.getInt(path + "max-particles-per-tick", 200));
+        this.shapePoints = Math.max(1, config.getInt(path + "shape-points", 24));
+        this.shapeRadius = config.getDouble(path + "shape-radius", 1.0);
+        this.shapeHeight = config.getDouble(path + "shape-height", 2.0);
+        this.defaultShape = config.getString(path + "shape", "helix");
+        this.shapeOverrides = config.getConfigurationSection(path + "shapes");
+    }
+
+    /**
+     * Rebuilds the home index on the next tick instead of waiting for the periodic refresh.
+     * Call after a home is set or removed, or when perks change.
+     */
+    public void markDirty() {
+        dirty = true;
+    }
+
+    @Override
+    public void run() {
+        tick++;
+        if (dirty || tick % indexRefreshTicks == 0) rebuildIndex();
+        if (tick % scanIntervalTicks == 0) scanViewers();
+        if (!active.isEmpty()) render();
+    }
+
+    // Indexes every home whose guild has a particle perk. O(guilds), run rarely.
+    private void rebuildIndex() {
+        dirty = false;
+        cellsByWorld.clear();
+        indexedHomes = 0;
+        for (Guild guild : guildManager.getAllGuilds().values()) {
+            String effect = guildManager.getGuildHomeParticleEffect(guild);
+            if (effect == null) continue;
+            Location home = guild.getGuildHomeLocation();
+            if (home == null || home.getWorld() == null) continue;
+            Particle particle;
+            try {
+                particle = Particle.valueOf(effect.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                continue; // perks.yml is validated on load, so this only happens with a hand-edited table
+            }
+            if (particle.getDataType() != Void.class) continue; // Effects that need extra data (dust colours, blocks) are not supported
+            Home entry = new Home(home.getWorld(), home.getX(), home.getY(), home.getZ(), particle, shapeFor(particle));
+            cellsByWorld.computeIfAbsent(entry.world.getName(), w -> new HashMap<>())
+                    .computeIfAbsent(cellKey(Math.floorDiv((int) Math.floor(entry.x), cellSize), Math.floorDiv((int) Math.floor(entry.z), cellSize)), k -> new ArrayList<>())
+                    .add(entry);
+            indexedHomes++;
+        }
+        // Drop viewers of homes that no longer exist until the next scan
+        active.clear();
+        scanViewers();
+    }
+
+    // Walks online players and attaches each to the homes within the radius. O(players), not O(homes).
+    private void scanViewers() {
+        long start = System.nanoTime();
+        for (Home home : active) home.viewers.clear();
+        active.clear();
+        int viewers = 0;
+        if (indexedHomes > 0) {
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                Location loc = player.getLocation();
+                if (loc.getWorld() == null) continue;
+                Map<Long, List<Home>> cells = cellsByWorld.get(loc.getWorld().getName());
+                if (cells == null) continue;
+                int cx = Math.floorDiv(loc.getBlockX(), cellSize);
+                int cz = Math.floorDiv(loc.getBlockZ(), cellSize);
+                boolean viewing = false;
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dz = -1; dz <= 1; dz++) {
+                        List<Home> homes = cells.get(cellKey(cx + dx, cz + dz));
+                        if (homes == null) continue;
+                        for (Home home : homes) {
+                            double ox = home.x - loc.getX(), oy = home.y - loc.getY(), oz = home.z - loc.getZ();
+                            if (ox * ox + oy * oy + oz * oz > radiusSquared) continue;
+                            if (!home.world.isChunkLoaded(((int) Math.floor(home.x)) >> 4, ((int) Math.floor(home.z)) >> 4)) continue;
+                            if (home.viewers.isEmpty()) active.add(home);
+                            home.viewers.add(player);
+                            viewing = true;
+                        }
+                    }
+                }
+                if (viewing) viewers++;
+            }
+        }
+        if (renderCursor >= active.size()) renderCursor = 0;
+        lastViewerCount = viewers;
+        lastScanNanos = System.nanoTime() - start;
+        scans++;
+    }
+
+    // Draws the next slice of active homes, so each home gets a frame every frameIntervalTicks, within the budget
+    private void render() {
+        int homesThisTick = (active.size() + frameIntervalTicks - 1) / frameIntervalTicks;
+        int budget = maxParticlesPerTick;
+        for (int i = 0; i < homesThisTick; i++) {
+            Home home = active.get(renderCursor);
+            int points = pointsPerFrame;
+            if (points * home.viewers.size() > budget) {
+                // A crowded home gets a thinner frame rather than starving; otherwise it goes first next tick
+                if (i > 0) {
+                    budgetLimitedTicks++;
+                    break;
+                }
+                points = Math.max(1, budget / Math.max(1, home.viewers.size()));
+                budgetLimitedTicks++;
+            }
+            budget -= points * home.viewers.size();
+            drawFrame(home, points);
+            renderCursor = (renderCursor + 1) % active.size();
+        }
+    }
+
+    private void drawFrame(Home home, int count) {
+        int points = home.shape.length / 3;
+        for (int p = 0; p < count; p++) {
+            int offset = home.frameCursor * 3;
+            home.frameCursor = (home.frameCursor + 1) % points;
+            double px = home.x + home.shape[offset], py = home.y + home.shape[offset + 1], pz = home.z + home.shape[offset + 2];
+            for (Player viewer : home.viewers) {
+                if (!viewer.isOnline()) continue;
+                viewer.spawnParticle(home.particle, px, py, pz, 1, 0, 0, 0, 0);
+                particlesSent++;
+            }
+        }
+    }
+
+    private double[] shapeFor(Particle particle) {
+        double[] shape = shapes.get(particle);
+        if (shape != null) return shape;
+        String kind = shapeOverrides != null ? shapeOverrides.getString(particle.name(), defaultShape) : defaultShape;
+        shape = new double[shapePoints * 3];
+        for (int i = 0; i < shapePoints; i++) {
+            double angle = 2 * Math.PI * i / shapePoints;
+            shape[i * 3] = Math.cos(angle) * shapeRadius;
+            shape[i * 3 + 2] = Math.sin(angle) * shapeRadius;
+            // A ring floats at head height; a helix climbs from the feet to shape-height
+            shape[i * 3 + 1] = kind.equalsIgnoreCase("ring") ? shapeHeight : shapeHeight * i / shapePoints;
+        }
+        if (!kind.equalsIgnoreCase("ring") && !kind.equalsIgnoreCase("helix")) {
+            plugin.getLogger().warning("Unknown home particle shape '" + kind + "' for " + particle + "; using helix.");
+        }
+        shapes.put(particle, shape);
+        return shape;
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    public String getStats() {
+        int viewerLinks = 0;
+        for (Home home : active) viewerLinks += home.viewers.size();
+        return indexedHomes + " homes indexed, " + active.size() + " in view (" + lastViewerCount + " players, " + viewerLinks
+                + " links), " + particlesSent + " particles sent, " + budgetLimitedTicks + " budget-limited ticks, "
+                + scans + " scans (last " + String.format("%.1f", lastScanNanos / 1000.0) + "us)";
+    }
+}
@@ -0,0 +1,176 @@
+package com.guildwars.services;
+
+import com.destroystokyo.paper.profile.PlayerProfile;
+import com.destroystokyo.paper.profile.ProfileProperty;
+import com.guildwars.GuildWarsPlugin;
+import com.guildwars.guild.OnlineMemberRegistry;
+import com.guildwars.storage.DatabaseManager;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.meta.SkullMeta;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Names, skin textures and last-seen times of guild members, kept in the database so GUIs never resolve profiles
+ * on the main thread. Online players are recorded from their own (already complete) profile on login; anyone else
+ * missing or stale is looked up in the background and handed back on the main thread. Online status is read from
+ * the {@link OnlineMemberRegistry} rather than tracked again here.
+ */
+public class ProfileCache {
+
+    public record Profile(UUID uuid, String name, String texture, String signature, long lastSeen, long refreshedAt) {
+        public boolean hasTexture() {
+            return texture != null;
+        }
+    }
+
+    private final GuildWarsPlugin plugin;
+    private final DatabaseManager dbManager;
+    private final OnlineMemberRegistry onlineMembers;
+    private final long refreshMillis;
+    private final long retryMillis;
+    private final Map<UUID, Profile> profiles = new ConcurrentHashMap<>();
+    private final Set<UUID> pending = ConcurrentHashMap.newKeySet(); // Lookups in flight, so a GUI reopen does not repeat them
+    // Failed lookups (offline-mode servers, rate limits) are not retried before this time. Main thread only.
+    private final Map<UUID, Long> retryAfter = new HashMap<>();
+
+    private long lookups = 0;
+    private long failedLookups = 0;
+
+    public ProfileCache(GuildWarsPlugin plugin, DatabaseManager dbManager, OnlineMemberRegistry onlineMembers) {
+        this.plugin = plugin;
+        this.dbManager = dbManager;
+        this.onlineMembers = onlineMembers;
+        this.refreshMillis = TimeUnit.HOURS.toMillis(Math.max(1L, plugin.getConfig().getLong("profiles.refresh-hours", 72L)));
+        this.retryMillis = TimeUnit.MINUTES.toMillis(Math.max(1L, plugin.getConfig().getLong("profiles.retry-minutes", 30L)));
+        if (dbManager != null) profiles.putAll(dbManager.loadPlayerProfiles());
+    }
+
+    /**
+     * @return The cached profile, or null if the player has never been resolved.
+     */
+    public Profile get(UUID playerUuid) {
+        return profiles.get(playerUuid);
+    }
+
+    public boolean isOnline(UUID playerUuid) {
+        return onlineMembers.isOnline(playerUuid);
+    }
+
+    // Main thread. A logged-in player's profile is already complete, so this never blocks.
+    public void recordLogin(Player player) {
+        UUID playerUuid = player.getUniqueId();
+        long now = System.currentTimeMillis();
+        Profile previous = profiles.get(playerUuid);
+        ProfileProperty textures = findTextures(player.getPlayerProfile());
+        Profile updated = textures != null
+                ? new Profile(playerUuid, player.getName(), textures.getValue(), textures.getSignature(), now, now)
+                : new Profile(playerUuid, player.getName(), previous != null ? previous.texture() : null,
+                        previous != null ? previous.signature() : null, now, previous != null ? previous.refreshedAt() : 0L);
+        store(updated);
+    }
+
+    public void recordLogout(UUID playerUuid) {
+        Profile previous = profiles.get(playerUuid);
+        if (previous == null) return;
+        store(new Profile(playerUuid, previous.name(), previous.texture(), previous.signature(), System.currentTimeMillis(), previous.refreshedAt()));
+    }
+
+    private void store(Profile profile) {
+        profiles.put(profile.uuid(), profile);
+        if (dbManager != null) dbManager.savePlayerProfile(profile);
+    }
+
+    private boolean needsRefresh(UUID playerUuid, long now) {
+        if (onlineMembers.isOnline(playerUuid)) return false; // Recorded on login, or when they joined the guild
+        Long retry = retryAfter.get(playerUuid);
+        if (retry != null && now < retry) return false;
+        Profile profile = profiles.get(playerUuid);
+        if (profile == null) return true;
+        // A profile without a skin (e.g. an offline-mode account) is retried sooner than a complete one is refreshed
+        return now - profile.refreshedAt() > (profile.hasTexture() ? refreshMillis : retryMillis);
+    }
+
+    /**
+     * Looks up, in the background, every given player whose profile is missing or stale.
+     * @param onResolved Runs on the main thread with the players that were updated; not called if nothing needed a lookup.
+     * @return True if any lookup was started.
+     */
+    public boolean refreshAsync(Collection<UUID> playerUuids, Consumer<List<UUID>> onResolved) {
+        long now = System.currentTimeMillis();
+        List<UUID> toResolve = new ArrayList<>();
+        for (UUID playerUuid : playerUuids) {
+            if (needsRefresh(playerUuid, now) && pending.add(playerUuid)) toResolve.add(playerUuid);
+        }
+        if (toResolve.isEmpty()) return false;
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            List<Profile> resolved = new ArrayList<>();
+            for (UUID playerUuid : toResolve) {
+                try {
+                    PlayerProfile profile = Bukkit.createProfile(playerUuid, null);
+                    ProfileProperty textures = profile.complete(true) ? findTextures(profile) : null;
+                    if (profile.getName() == null && textures == null) continue;
+                    resolved.add(new Profile(playerUuid, profile.getName(), textures != null ? textures.getValue() : null,
+                            textures != null ? textures.getSignature() : null, 0L, System.currentTimeMillis()));
+                } catch (RuntimeException e) {
+                    plugin.getLogger().fine("Profile lookup for " + playerUuid + " failed: " + e.getMessage());
+                }
+            }
+            plugin.getServer().getScheduler().runTask(plugin, () -> applyResolved(toResolve, resolved, onResolved));
+        });
+        return true;
+    }
+
+    private void applyResolved(List<UUID> requested, List<Profile> resolved, Consumer<List<UUID>> onResolved) {
+        List<UUID> updated = new ArrayList<>();
+        long retryAt = System.currentTimeMillis() + retryMillis;
+        for (UUID playerUuid : requested) retryAfter.put(playerUuid, retryAt); // Cleared below for the ones that worked
+        for (Profile fresh : resolved) {
+            retryAfter.remove(fresh.uuid());
+            Profile previous = profiles.get(fresh.uuid());
+            long lastSeen = previous != null ? previous.lastSeen() : 0L;
+            String name = fresh.name() != null ? fresh.name() : (previous != null ? previous.name() : null);
+            store(new Profile(fresh.uuid(), name, fresh.texture(), fresh.signature(), lastSeen, fresh.refreshedAt()));
+            updated.add(fresh.uuid());
+        }
+        lookups += requested.size();
+        failedLookups += requested.size() - resolved.size();
+        pending.removeAll(requested);
+        if (!updated.isEmpty()) onResolved.accept(updated);
+    }
+
+    /**
+     * Puts the cached skin on a head without any lookup.
+     * @return False if there is no texture yet, leaving the default head as a placeholder.
+     */
+    public boolean applyTo(SkullMeta meta, UUID playerUuid) {
+        Profile profile = profiles.get(playerUuid);
+        if (profile == null || !profile.hasTexture()) return false;
+        PlayerProfile playerProfile = Bukkit.createProfile(playerUuid, profile.name());
+        playerProfile.setProperty(new ProfileProperty("textures", profile.texture(), profile.signature()));
+        meta.setPlayerProfile(playerProfile);
+        return true;
+    }
+
+    private static ProfileProperty findTextures(PlayerProfile profile) {
+        if (profile == null) return null;
+        for (ProfileProperty property : profile.getProperties()) {
+            if ("textures".equals(property.getName())) return property;
+        }
+        return null;
+    }
+
+    public String getStats() {
+        return profiles.size() + " cached, " + pending.size() + " lookups pending, " + lookups + " looked up (" + failedLookups + " failed)";
+    }
+}
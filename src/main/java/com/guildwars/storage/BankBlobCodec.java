@@ -0,0 +1,77 @@
+package com.guildwars.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Packs a whole guild bank into one compact BLOB.
+ * Works on raw {@code ItemStack.serializeAsBytes()} payloads, so it needs no server classes and
+ * can migrate rows without a deserialize/serialize round trip.
+ *
+ * Format v1: [version: 1 byte] then Deflate of [slot bitmap: long][per set bit, ascending: length int, item bytes].
+ */
+public final class BankBlobCodec {
+
+    public static final int VERSION = 1;
+    private static final int MAX_SLOTS = Long.SIZE;
+    private static final int MAX_ITEM_BYTES = 1 << 21; // Guards against corrupt lengths, far above any real item
+
+    private BankBlobCodec() {}
+
+    /**
+     * @param slots Serialized item per slot; null marks an empty slot.
+     */
+    public static byte[] encode(byte[][] slots) throws IOException {
+        if (slots.length > MAX_SLOTS) throw new IOException("Bank has " + slots.length + " slots; format supports " + MAX_SLOTS);
+        long bitmap = 0L;
+        int payloadSize = Long.BYTES;
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == null) continue;
+            bitmap |= 1L << i;
+            payloadSize += Integer.BYTES + slots[i].length;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payloadSize / 2 + 16);
+        bytes.write(VERSION);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+            out.writeLong(bitmap);
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i] == null) continue;
+                out.writeInt(slots[i].length);
+                out.write(slots[i]);
+            }
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return Serialized item per slot (length {@code slotCount}); slots beyond slotCount are ignored.
+     */
+    public static byte[][] decode(byte[] blob, int slotCount) throws IOException {
+        if (blob == null || blob.length == 0) throw new IOException("Empty bank blob");
+        int version = blob[0] & 0xFF;
+        if (version != VERSION) throw new IOException("Unsupported bank blob version " + version);
+        byte[][] slots = new byte[slotCount][];
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(blob, 1, blob.length - 1)))) {
+            long bitmap = in.readLong();
+            while (bitmap != 0) {
+                int slot = Long.numberOfTrailingZeros(bitmap);
+                bitmap &= bitmap - 1;
+                int length = in.readInt();
+                if (length < 0 || length > MAX_ITEM_BYTES) throw new IOException("Corrupt item length " + length + " in slot " + slot);
+                byte[] item = new byte[length];
+                in.readFully(item);
+                if (slot < slotCount) slots[slot] = item;
+            }
+        }
+        return slots;
+    }
+}
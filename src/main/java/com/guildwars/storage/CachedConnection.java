@@ -0,0 +1,81 @@
+package com.guildwars.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A long-lived SQLite connection that keeps its prepared statements, keyed by SQL string.
+ * Only one thread may use it at a time. Statements returned by {@link #prepare} belong to the cache:
+ * close their ResultSets, never the statements themselves.
+ */
+public final class CachedConnection implements AutoCloseable {
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    private final Consumer<CachedConnection> releaser; // Null for connections owned outright by the caller
+
+    CachedConnection(Connection connection, Consumer<CachedConnection> releaser) {
+        this.connection = connection;
+        this.releaser = releaser;
+    }
+
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement pstmt = statements.get(sql);
+        if (pstmt == null || pstmt.isClosed()) {
+            pstmt = connection.prepareStatement(sql);
+            statements.put(sql, pstmt);
+        } else {
+            pstmt.clearParameters();
+            pstmt.clearBatch(); // A failed batch must not leak rows into the next use
+        }
+        return pstmt;
+    }
+
+    public Connection raw() {
+        return connection;
+    }
+
+    public boolean isBroken() {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    int cachedStatementCount() {
+        return statements.size();
+    }
+
+    /**
+     * Returns a pooled connection to its pool, or closes an owned one.
+     */
+    @Override
+    public void close() {
+        if (releaser != null) {
+            releaser.accept(this);
+        } else {
+            closeUnderlying();
+        }
+    }
+
+    void closeUnderlying() {
+        for (PreparedStatement pstmt : statements.values()) {
+            try {
+                pstmt.close();
+            } catch (SQLException ignored) {
+                // Closing the connection below releases it anyway
+            }
+        }
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // Nothing useful to do with a failed close
+        }
+    }
+}
@@ -2,14 +2,18 @@ package com.guildwars.storage;
 
 import com.guildwars.GuildWarsPlugin;
 import com.guildwars.guild.Guild;
+import com.guildwars.guild.claims.ChunkOwnershipIndex;
 import com.guildwars.guild.outposts.OutpostType;
+import com.guildwars.guild.wars.WarMatrix;
+import com.guildwars.services.BankAuditLog;
+import com.guildwars.services.ProfileCache;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
 
 import java.io.File;
+import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -17,16 +21,45 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
 
 public class DatabaseManager {
 
     private final GuildWarsPlugin plugin;
-    private Connection connection;
     private final String dbPath;
+    private final SqliteConnectionPool connectionPool;
+    private final WriteBehindQueue writeQueue;
+    private final boolean blobBankStorage;
+    private final Map<String, BankShadow> bankShadows = new ConcurrentHashMap<>();
+
+    // Copy of a bank as last handed to the writer, with per-slot hashes for a cheap first-pass compare
+    private static final class BankShadow {
+        final ItemStack[] items = new ItemStack[Guild.BANK_SIZE];
+        final int[] hashes = new int[Guild.BANK_SIZE];
+
+        static BankShadow of(ItemStack[] contents) {
+            BankShadow shadow = new BankShadow();
+            for (int i = 0; i < Guild.BANK_SIZE && i < contents.length; i++) {
+                if (contents[i] == null || contents[i].getType() == Material.AIR) continue;
+                shadow.items[i] = contents[i].clone();
+                shadow.hashes[i] = shadow.items[i].hashCode();
+            }
+            return shadow;
+        }
+    }
 
     public DatabaseManager(GuildWarsPlugin plugin) {
         this.plugin = plugin;
@@ -34,22 +67,25 @@ public class DatabaseManager {
         if (!plugin.getDataFolder().exists()) {
             plugin.getDataFolder().mkdirs();
         }
+        this.connectionPool = new SqliteConnectionPool(dbPath, plugin.getLogger(),
+                plugin.getConfig().getInt("database.reader-connections", 2),
+                plugin.getConfig().getLong("database.mmap-size-mb", 64L) * 1024L * 1024L,
+                plugin.getConfig().getInt("database.cache-size-kb", 8192),
+                plugin.getConfig().getInt("database.busy-timeout-ms", 5000));
+        String bankStorage = plugin.getConfig().getString("database.bank-storage", "blob");
+        if (!bankStorage.equalsIgnoreCase("blob") && !bankStorage.equalsIgnoreCase("rows")) {
+            plugin.getLogger().warning("Unknown database.bank-storage '" + bankStorage + "', using 'blob'.");
+        }
+        this.blobBankStorage = !bankStorage.equalsIgnoreCase("rows");
+        // The writer thread owns a dedicated connection, so reads never queue behind a commit
+        this.writeQueue = new WriteBehindQueue(plugin.getLogger(), connectionPool::openWriter,
+                plugin.getConfig().getLong("persistence.flush-interval-ms", 250L),
+                plugin.getConfig().getInt("persistence.max-batch-size", 500),
+                plugin.getConfig().getInt("persistence.max-retries", 3));
     }
 
-    public Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            try {
-                Class.forName("org.sqlite.JDBC");
-                connection = DriverManager.getConnection(dbPath);
-            } catch (ClassNotFoundException e) {
-                plugin.getLogger().severe("SQLite JDBC driver not found! Ensure it's in the classpath.");
-                throw new SQLException("SQLite JDBC driver not found", e);
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Could not connect to SQLite database: " + e.getMessage());
-                throw e;
-            }
-        }
-        return connection;
+    public WriteBehindQueue.Metrics getWriteQueueMetrics() {
+        return writeQueue.getMetrics();
     }
 
     public void initializeDatabase() {
@@ -58,6 +94,7 @@ public class DatabaseManager {
                 "leader_uuid TEXT NOT NULL, " +
                 "level INTEGER NOT NULL DEFAULT 1, " +
                 "current_xp BIGINT NOT NULL DEFAULT 0, " +
+                "last_upkeep BIGINT NOT NULL DEFAULT 0, " +
                 "home_world TEXT DEFAULT NULL, " +
                 "home_x REAL DEFAULT NULL, " +
                 "home_y REAL DEFAULT NULL, " +
@@ -96,6 +133,14 @@ public class DatabaseManager {
                 "FOREIGN KEY (guild_name) REFERENCES guilds(name) ON DELETE CASCADE" +
                 ");";
 
+        // Compressed single-row bank format (see BankBlobCodec), used when database.bank-storage is "blob"
+        String createGuildBanksTable = "CREATE TABLE IF NOT EXISTS guild_banks (" +
+                "guild_name TEXT PRIMARY KEY NOT NULL, " +
+                "format_version INTEGER NOT NULL, " +
+                "data BLOB NOT NULL, " +
+                "FOREIGN KEY (guild_name) REFERENCES guilds(name) ON DELETE CASCADE" +
+                ");";
+
         String createGuildOutpostsPreciseTable = "CREATE TABLE IF NOT EXISTS guild_outposts_precise (" +
                 "guild_name TEXT NOT NULL, " +
                 "outpost_type TEXT NOT NULL, " +
@@ -120,39 +165,152 @@ public class DatabaseManager {
                 "CHECK (guild1_name < guild2_name)" +
                 ");";
 
-        try (Connection conn = getConnection(); Statement stmt = conn.createStatement()) {
+        // Not tied to a guild: a player's cached name and skin outlive their membership
+        String createPlayerProfilesTable = "CREATE TABLE IF NOT EXISTS player_profiles (" +
+                "player_uuid TEXT PRIMARY KEY, " +
+                "name TEXT, " +
+                "texture TEXT, " +
+                "texture_signature TEXT, " +
+                "last_seen BIGINT NOT NULL DEFAULT 0, " +
+                "refreshed_at BIGINT NOT NULL DEFAULT 0" +
+                ");";
+
+        // Append-only; the index lets a page be read newest-first without touching older rows
+        String createGuildBankLogTable = "CREATE TABLE IF NOT EXISTS guild_bank_log (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "guild_name TEXT NOT NULL, " +
+                "player_uuid TEXT NOT NULL, " +
+                "material TEXT NOT NULL, " +
+                "amount INTEGER NOT NULL, " +
+                "slot INTEGER NOT NULL, " +
+                "created_at BIGINT NOT NULL" +
+                ");";
+        String createGuildBankLogIndex = "CREATE INDEX IF NOT EXISTS idx_guild_bank_log_guild ON guild_bank_log(guild_name, id)";
+
+        try (CachedConnection conn = connectionPool.openWriter(); Statement stmt = conn.raw().createStatement()) {
             stmt.execute(createGuildsTable);
             stmt.execute(createGuildMembersTable);
             stmt.execute(createGuildInvitesTable);
             stmt.execute(createGuildClaimsTable);
             stmt.execute(createGuildBankTable);
+            stmt.execute(createGuildBanksTable);
             stmt.execute(createGuildOutpostsPreciseTable);
             stmt.execute(createGuildWarsTable);
+            stmt.execute(createPlayerProfilesTable);
+            stmt.execute(createGuildBankLogTable);
+            stmt.execute(createGuildBankLogIndex);
+            addColumnIfMissing(conn.raw(), "guilds", "last_upkeep", "BIGINT NOT NULL DEFAULT 0");
             plugin.getLogger().info("Database tables initialized.");
+            migrateBankStorage(conn.raw());
         } catch (SQLException e) {
             plugin.getLogger().severe("Error initializing DB tables: " + e.getMessage());
             e.printStackTrace();
         }
+        writeQueue.start();
     }
 
-    public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                 plugin.getLogger().info("SQLite database connection closed.");
+    // For databases created before a column was added to an existing table
+    private void addColumnIfMissing(Connection conn, String table, String column, String definition) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) return;
             }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Error closing SQLite connection: " + e.getMessage());
         }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        }
+        plugin.getLogger().info("Added column " + table + "." + column + ".");
     }
 
-    public Map<String, Guild> loadAllGuilds() {
+    // Moves any bank data stored in the inactive format into the configured one, in a single transaction.
+    // Runs before the writer starts, so nothing else touches the bank tables meanwhile.
+    private void migrateBankStorage(Connection conn) throws SQLException {
+        Map<String, byte[][]> banks = new HashMap<>();
+        Set<String> unreadable = new HashSet<>(); // Left in the old format so no item is lost
+        String selectSql = blobBankStorage
+                ? "SELECT b.guild_name, b.slot, b.item_data FROM guild_bank_items b JOIN guilds g ON g.name = b.guild_name"
+                : "SELECT b.guild_name, b.data FROM guild_banks b JOIN guilds g ON g.name = b.guild_name";
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(selectSql)) {
+            while (rs.next()) {
+                String guildName = rs.getString("guild_name");
+                try {
+                    if (blobBankStorage) {
+                        int slot = rs.getInt("slot");
+                        if (slot < 0 || slot >= Guild.BANK_SIZE) continue;
+                        banks.computeIfAbsent(guildName, k -> new byte[Guild.BANK_SIZE][])[slot] = Base64.getDecoder().decode(rs.getString("item_data"));
+                    } else {
+                        banks.put(guildName, BankBlobCodec.decode(rs.getBytes("data"), Guild.BANK_SIZE));
+                    }
+                } catch (IllegalArgumentException | IOException e) {
+                    plugin.getLogger().warning("Unreadable bank data for '" + guildName + "' during migration: " + e.getMessage());
+                    unreadable.add(guildName);
+                }
+            }
+        }
+        for (String guildName : unreadable) {
+            banks.remove(guildName);
+            plugin.getLogger().warning("Bank of '" + guildName + "' was not migrated; its " + (blobBankStorage ? "per-slot rows were" : "blob was") + " left in place.");
+        }
+        if (banks.isEmpty()) return;
+
+        String insertSql = blobBankStorage
+                ? "INSERT OR REPLACE INTO guild_banks(guild_name, format_version, data) VALUES(?,?,?)"
+                : "INSERT OR REPLACE INTO guild_bank_items(guild_name, slot, item_data) VALUES(?,?,?)";
+        String deleteSql = blobBankStorage
+                ? "DELETE FROM guild_bank_items WHERE guild_name = ?"
+                : "DELETE FROM guild_banks WHERE guild_name = ?";
+        conn.setAutoCommit(false);
+        try (PreparedStatement pstmtInsert = conn.prepareStatement(insertSql); PreparedStatement pstmtDelete = conn.prepareStatement(deleteSql)) {
+            for (Map.Entry<String, byte[][]> bank : banks.entrySet()) {
+                if (blobBankStorage) {
+                    pstmtInsert.setString(1, bank.getKey());
+                    pstmtInsert.setInt(2, BankBlobCodec.VERSION);
+                    pstmtInsert.setBytes(3, BankBlobCodec.encode(bank.getValue()));
+                    pstmtInsert.addBatch();
+                } else {
+                    byte[][] slots = bank.getValue();
+                    for (int slot = 0; slot < slots.length; slot++) {
+                        if (slots[slot] == null) continue;
+                        pstmtInsert.setString(1, bank.getKey());
+                        pstmtInsert.setInt(2, slot);
+                        pstmtInsert.setString(3, Base64.getEncoder().encodeToString(slots[slot]));
+                        pstmtInsert.addBatch();
+                    }
+                }
+                pstmtDelete.setString(1, bank.getKey());
+                pstmtDelete.addBatch();
+            }
+            pstmtInsert.executeBatch();
+            pstmtDelete.executeBatch();
+            conn.commit();
+            plugin.getLogger().info("Migrated " + banks.size() + " guild banks to " + (blobBankStorage ? "compressed blob" : "per-slot row") + " storage.");
+        } catch (SQLException | IOException e) {
+            conn.rollback();
+            plugin.getLogger().severe("Bank storage migration failed, nothing was changed: " + e.getMessage());
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    public void closeConnection() {
+        // Drain pending writes first; this blocks until everything queued has been committed
+        writeQueue.shutdown(5000L);
+        WriteBehindQueue.Metrics metrics = writeQueue.getMetrics();
+        plugin.getLogger().info("Database writer stopped (" + metrics.applied() + " writes applied, " + metrics.coalesced() + " coalesced, " + metrics.dropped() + " dropped).");
+        connectionPool.close();
+        plugin.getLogger().info("SQLite database connections closed.");
+    }
+
+    // With preloadBanks false, banks are left unloaded for GuildBankCache to fetch on demand
+    public Map<String, Guild> loadAllGuilds(boolean preloadBanks) {
         Map<String, Guild> guildsMap = new HashMap<>();
-        String sql = "SELECT name, leader_uuid, level, current_xp, home_world, home_x, home_y, home_z, home_yaw, home_pitch FROM guilds";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql); ResultSet rs = pstmt.executeQuery()) {
+        long start = System.nanoTime();
+        String sql = "SELECT name, leader_uuid, level, current_xp, last_upkeep, home_world, home_x, home_y, home_z, home_yaw, home_pitch FROM guilds";
+        try (CachedConnection conn = connectionPool.reader(); ResultSet rs = conn.prepare(sql).executeQuery()) {
             while (rs.next()) {
                 String guildName = rs.getString("name");
                 Guild guild = new Guild(guildName, UUID.fromString(rs.getString("leader_uuid")), rs.getInt("level"), rs.getLong("current_xp"));
+                guild.setLastUpkeepMillis(rs.getLong("last_upkeep"));
                 String homeWorld = rs.getString("home_world");
                 if (homeWorld != null) {
                     guild.setRawHomeLocation(homeWorld, rs.getDouble("home_x"), rs.getDouble("home_y"), rs.getDouble("home_z"), rs.getFloat("home_yaw"), rs.getFloat("home_pitch"));
@@ -165,45 +323,170 @@ public class DatabaseManager {
             return Collections.emptyMap(); 
         }
 
+        logLoadTiming("guilds", guildsMap.size(), start);
+
+        // Related tables are read with one scan each and grouped by guild in memory
         if (!guildsMap.isEmpty()) {
-            plugin.getLogger().info("Loading related data for " + guildsMap.size() + " guilds...");
+            if (preloadBanks) loadAllBanks(guildsMap);
+            loadAllOutposts(guildsMap);
+        }
+        return guildsMap;
+    }
+
+    private void logLoadTiming(String table, int rows, long startNanos) {
+        plugin.getLogger().info(String.format("Loaded %d rows from %s in %.1f ms.", rows, table, (System.nanoTime() - startNanos) / 1_000_000.0));
+    }
+
+    // Scans the bank table once, then decodes items on a small worker pool since deserialization dominates load time
+    private void loadAllBanks(Map<String, Guild> guildsMap) {
+        long start = System.nanoTime();
+        Map<Guild, byte[][]> slotBytes = new HashMap<>();
+        Map<Guild, byte[]> blobs = new HashMap<>();
+        int rows = 0;
+        String sql = blobBankStorage ? "SELECT guild_name, data FROM guild_banks" : "SELECT guild_name, slot, item_data FROM guild_bank_items";
+        try (CachedConnection conn = connectionPool.reader(); ResultSet rs = conn.prepare(sql).executeQuery()) {
+            while (rs.next()) {
+                rows++;
+                Guild guild = guildsMap.get(rs.getString("guild_name"));
+                if (guild == null) continue;
+                if (blobBankStorage) {
+                    blobs.put(guild, rs.getBytes("data"));
+                    continue;
+                }
+                int slot = rs.getInt("slot");
+                if (slot < 0 || slot >= Guild.BANK_SIZE) continue;
+                try {
+                    slotBytes.computeIfAbsent(guild, k -> new byte[Guild.BANK_SIZE][])[slot] = Base64.getDecoder().decode(rs.getString("item_data"));
+                } catch (IllegalArgumentException e) {
+                    plugin.getLogger().warning("Could not decode bank item for " + guild.getName() + " slot " + slot + ": " + e.getMessage());
+                }
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Error loading guild banks: " + e.getMessage());
+        }
+        logLoadTiming(blobBankStorage ? "guild_banks" : "guild_bank_items", rows, start);
+
+        long decodeStart = System.nanoTime();
+        int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, 4));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "GuildWars-Bank-Loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<Guild, Future<ItemStack[]>> decoded = new HashMap<>();
+        try {
             for (Guild guild : guildsMap.values()) {
+                byte[] blob = blobs.get(guild);
+                byte[][] slots = slotBytes.get(guild);
+                if (blob == null && slots == null) { // Nothing stored, so the bank is empty; loaded guilds start without one
+                    ItemStack[] empty = new ItemStack[Guild.BANK_SIZE];
+                    guild.setBankContents(empty);
+                    bankShadows.put(guild.getName(), BankShadow.of(empty));
+                    continue;
+                }
+                decoded.put(guild, pool.submit(() -> decodeBank(guild, blob != null ? BankBlobCodec.decode(blob, Guild.BANK_SIZE) : slots)));
+            }
+            int items = 0;
+            for (Map.Entry<Guild, Future<ItemStack[]>> entry : decoded.entrySet()) {
+                Guild guild = entry.getKey();
+                ItemStack[] contents;
                 try {
-                    loadGuildBank(guild); 
-                    loadGuildOutposts(guild);
-                    // loadGuildClaims(guild); // Already handled in GuildManager's loadAllData
-                    // loadGuildMembersAndOfficers is also handled in GuildManager's loadAllData separately
-                } catch (Exception e) { 
-                    plugin.getLogger().severe("Failed to load related data (bank/outposts) for guild: " + guild.getName() + " - " + e.getMessage());
-                    e.printStackTrace();
+                    contents = entry.getValue().get();
+                } catch (ExecutionException e) {
+                    plugin.getLogger().severe("Error decoding guild bank for '" + guild.getName() + "': " + e.getCause().getMessage());
+                    contents = new ItemStack[Guild.BANK_SIZE];
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    contents = new ItemStack[Guild.BANK_SIZE];
+                }
+                for (ItemStack item : contents) {
+                    if (item != null) items++;
                 }
+                guild.setBankContents(contents);
+                bankShadows.put(guild.getName(), BankShadow.of(contents));
             }
-            plugin.getLogger().info("Finished loading related guild data.");
+            plugin.getLogger().info(String.format("Deserialized %d bank items for %d guilds on %d threads in %.1f ms.", items, decoded.size(), threads, (System.nanoTime() - decodeStart) / 1_000_000.0));
+        } finally {
+            pool.shutdown();
         }
-        return guildsMap;
     }
 
-    public void loadGuildClaims(Guild guild) {
-        String sql = "SELECT world_name, chunk_x, chunk_z FROM guild_claims WHERE guild_name = ?";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, guild.getName());
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    guild.loadClaimedChunk(rs.getString("world_name") + ":" + rs.getInt("chunk_x") + ":" + rs.getInt("chunk_z"));
+    private ItemStack[] decodeBank(Guild guild, byte[][] slots) {
+        ItemStack[] contents = new ItemStack[Guild.BANK_SIZE];
+        for (int slot = 0; slot < slots.length && slot < Guild.BANK_SIZE; slot++) {
+            if (slots[slot] != null) contents[slot] = deserializeBankItem(guild, slot, slots[slot]);
+        }
+        return contents;
+    }
+
+    private void loadAllOutposts(Map<String, Guild> guildsMap) {
+        long start = System.nanoTime();
+        int rows = 0;
+        String sql = "SELECT guild_name, outpost_type, world_name, core_x, core_y, core_z, next_tick_timestamp FROM guild_outposts_precise";
+        try (CachedConnection conn = connectionPool.reader(); ResultSet rs = conn.prepare(sql).executeQuery()) {
+            while (rs.next()) {
+                rows++;
+                Guild guild = guildsMap.get(rs.getString("guild_name"));
+                if (guild == null) continue;
+                try {
+                    OutpostType type = OutpostType.valueOf(rs.getString("outpost_type").toUpperCase());
+                    Guild.LocationData locData = new Guild.LocationData(
+                            rs.getString("world_name"),
+                            rs.getInt("core_x"),
+                            rs.getInt("core_y"),
+                            rs.getInt("core_z"));
+                    guild.addOutpost(type, locData, rs.getLong("next_tick_timestamp"));
+                } catch (IllegalArgumentException e) {
+                    plugin.getLogger().warning("Unknown outpost type or bad data for " + guild.getName() + ": " + e.getMessage());
                 }
             }
         } catch (SQLException e) {
-            plugin.getLogger().severe("Error loading claims for guild '" + guild.getName() + "': " + e.getMessage());
+            plugin.getLogger().severe("Error loading guild outposts: " + e.getMessage());
         }
+        logLoadTiming("guild_outposts_precise", rows, start);
     }
 
-    public void loadGuildMembersAndOfficers(Map<String, Guild> guildsMap) {
+    // Scans every claim and registers it in the ownership index (guilds must already have their ids)
+    public void loadAllClaims(Map<String, Guild> guildsMap, ChunkOwnershipIndex claimIndex) {
+        long start = System.nanoTime();
+        int rows = 0;
+        String sql = "SELECT guild_name, world_name, chunk_x, chunk_z FROM guild_claims";
+        try (CachedConnection conn = connectionPool.reader(); ResultSet rs = conn.prepare(sql).executeQuery()) {
+            while (rs.next()) {
+                rows++;
+                Guild guild = guildsMap.get(rs.getString("guild_name"));
+                if (guild == null) continue;
+                String worldName = rs.getString("world_name");
+                int chunkX = rs.getInt("chunk_x");
+                int chunkZ = rs.getInt("chunk_z");
+                if (!claimIndex.claim(worldName, chunkX, chunkZ, guild.getId())) {
+                    plugin.getLogger().warning("Claim " + worldName + ":" + chunkX + ":" + chunkZ + " for guild '" + guild.getName() + "' is already owned by another guild. Skipping.");
+                    continue;
+                }
+                guild.loadClaimedChunk(worldName + ":" + chunkX + ":" + chunkZ);
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Error loading guild claims: " + e.getMessage());
+        }
+        logLoadTiming("guild_claims", rows, start);
+    }
+
+    // Populates member/officer lists and fills the player -> guild index as rows are read
+    public void loadGuildMembersAndOfficers(Map<String, Guild> guildsMap, Map<UUID, Guild> memberIndex) {
+        long start = System.nanoTime();
+        int rows = 0;
         String sql = "SELECT guild_name, player_uuid, is_officer FROM guild_members";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql); ResultSet rs = pstmt.executeQuery()) {
+        try (CachedConnection conn = connectionPool.reader(); ResultSet rs = conn.prepare(sql).executeQuery()) {
             while (rs.next()) {
+                rows++;
                 Guild guild = guildsMap.get(rs.getString("guild_name"));
                 if (guild != null) {
                     UUID playerUuid = UUID.fromString(rs.getString("player_uuid"));
+                    Guild existing = memberIndex.putIfAbsent(playerUuid, guild);
+                    if (existing != null && existing != guild) {
+                        plugin.getLogger().warning("Player " + playerUuid + " is stored as a member of both '" + existing.getName() + "' and '" + guild.getName() + "'. Keeping '" + existing.getName() + "'.");
+                        continue;
+                    }
                     guild.addMember(playerUuid);
                     if (rs.getInt("is_officer") == 1 && !guild.getLeader().equals(playerUuid)) {
                         guild.promoteOfficer(playerUuid);
@@ -213,12 +496,14 @@ public class DatabaseManager {
         } catch (SQLException e) {
             plugin.getLogger().severe("Error loading guild members/officers: " + e.getMessage());
         }
+        logLoadTiming("guild_members", rows, start);
     }
 
     public Map<UUID, String> loadPendingInvites() {
         Map<UUID, String> invitesMap = new HashMap<>();
+        long start = System.nanoTime();
         String sql = "SELECT invited_player_uuid, inviting_guild_name FROM guild_invites";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql); ResultSet rs = pstmt.executeQuery()) {
+        try (CachedConnection conn = connectionPool.reader(); ResultSet rs = conn.prepare(sql).executeQuery()) {
             while (rs.next()) {
                 invitesMap.put(UUID.fromString(rs.getString("invited_player_uuid")), rs.getString("inviting_guild_name"));
             }
@@ -227,72 +512,84 @@ public class DatabaseManager {
             e.printStackTrace();
             return Collections.emptyMap(); 
         }
+        logLoadTiming("guild_invites", invitesMap.size(), start);
         return invitesMap;
     }
 
-    public void saveNewGuild(Guild guild) {
-        String sqlGuild = "INSERT INTO guilds(name, leader_uuid, level, current_xp, home_world, home_x, home_y, home_z, home_yaw, home_pitch) VALUES(?,?,?,?,?,?,?,?,?,?)";
-        String sqlMember = "INSERT INTO guild_members(guild_name, player_uuid, is_officer) VALUES(?,?,?)";
-        try (Connection conn = getConnection()) {
-            conn.setAutoCommit(false);
-            try (PreparedStatement pstmtGuild = conn.prepareStatement(sqlGuild); PreparedStatement pstmtMember = conn.prepareStatement(sqlMember)) {
-                pstmtGuild.setString(1, guild.getName());
-                pstmtGuild.setString(2, guild.getLeader().toString());
-                pstmtGuild.setInt(3, guild.getLevel());
-                pstmtGuild.setLong(4, guild.getCurrentXp());
-                pstmtGuild.setString(5, guild.getHomeWorldName());
-                pstmtGuild.setObject(6, guild.getHomeX());
-                pstmtGuild.setObject(7, guild.getHomeY());
-                pstmtGuild.setObject(8, guild.getHomeZ());
-                pstmtGuild.setObject(9, guild.getHomeYaw());
-                pstmtGuild.setObject(10, guild.getHomePitch());
-                pstmtGuild.executeUpdate();
-                pstmtMember.setString(1, guild.getName());
-                pstmtMember.setString(2, guild.getLeader().toString());
-                pstmtMember.setInt(3, 1);
-                pstmtMember.executeUpdate();
-                conn.commit();
-            } catch (SQLException e) {
-                conn.rollback();
-                plugin.getLogger().severe("Error saving new guild '" + guild.getName() + "': " + e.getMessage());
+    public Map<UUID, ProfileCache.Profile> loadPlayerProfiles() {
+        Map<UUID, ProfileCache.Profile> profiles = new HashMap<>();
+        long start = System.nanoTime();
+        String sql = "SELECT player_uuid, name, texture, texture_signature, last_seen, refreshed_at FROM player_profiles";
+        try (CachedConnection conn = connectionPool.reader(); ResultSet rs = conn.prepare(sql).executeQuery()) {
+            while (rs.next()) {
+                UUID playerUuid = UUID.fromString(rs.getString("player_uuid"));
+                profiles.put(playerUuid, new ProfileCache.Profile(playerUuid, rs.getString("name"), rs.getString("texture"),
+                        rs.getString("texture_signature"), rs.getLong("last_seen"), rs.getLong("refreshed_at")));
             }
         } catch (SQLException e) {
-            plugin.getLogger().severe("DB error during saveNewGuild: " + e.getMessage());
+            plugin.getLogger().severe("Error loading player profiles: " + e.getMessage());
+            return Collections.emptyMap();
         }
+        logLoadTiming("player_profiles", profiles.size(), start);
+        return profiles;
     }
 
-    public void deleteGuildDB(String guildName) {
-        String sqlGuild = "DELETE FROM guilds WHERE name = ?";
-        try (Connection conn = getConnection(); PreparedStatement pstmtGuild = conn.prepareStatement(sqlGuild)) {
-            pstmtGuild.setString(1, guildName);
-            pstmtGuild.executeUpdate(); 
+    /**
+     * Reads a guild's bank log newest first, starting below the given entry id. Seeks straight to it on the
+     * (guild_name, id) index, so the cost depends only on limit, not on how deep the page is or how long the
+     * history is. Safe to call off the main thread.
+     * @param beforeId Id of the last entry already shown, or Long.MAX_VALUE for the newest entries.
+     */
+    public List<BankAuditLog.Entry> loadBankLog(String guildName, long beforeId, int limit) {
+        List<BankAuditLog.Entry> entries = new ArrayList<>();
+        String sql = "SELECT id, player_uuid, material, amount, slot, created_at FROM guild_bank_log WHERE guild_name = ? AND id < ? ORDER BY id DESC LIMIT ?";
+        try (CachedConnection conn = connectionPool.reader()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            pstmt.setString(1, guildName);
+            pstmt.setLong(2, beforeId);
+            pstmt.setInt(3, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Material material = Material.matchMaterial(rs.getString("material"));
+                    entries.add(new BankAuditLog.Entry(rs.getLong("id"), guildName, UUID.fromString(rs.getString("player_uuid")),
+                            material != null ? material : Material.AIR, rs.getInt("amount"), rs.getInt("slot"), rs.getLong("created_at")));
+                }
+            }
         } catch (SQLException e) {
-            plugin.getLogger().severe("Error deleting guild '" + guildName + "': " + e.getMessage());
+            plugin.getLogger().severe("Error loading bank log for '" + guildName + "': " + e.getMessage());
         }
-        clearInvitesFromGuildDB(guildName); 
+        return entries;
+    }
+
+    // --- Writes ---
+    // Mutators only snapshot their arguments and enqueue a typed write; the SQL runs later on the
+    // write-behind thread, batched and coalesced with whatever else is pending for the same rows.
+
+    public void saveNewGuild(Guild guild) {
+        writeQueue.enqueue(new InsertGuild(guild.getName(), guild.getLeader(), guild.getLevel(), guild.getCurrentXp(), guild.getLastUpkeepMillis(),
+                guild.getHomeWorldName(), guild.getHomeX(), guild.getHomeY(), guild.getHomeZ(), guild.getHomeYaw(), guild.getHomePitch()));
+    }
+
+    public void deleteGuildDB(String guildName) {
+        bankShadows.remove(guildName);
+        writeQueue.enqueue(new DeleteGuild(guildName));
     }
 
     public void addGuildMemberDB(String guildName, UUID playerUuid, boolean isOfficer) {
-        String sql = "INSERT OR REPLACE INTO guild_members(guild_name, player_uuid, is_officer) VALUES(?,?,?)";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, guildName);
-            pstmt.setString(2, playerUuid.toString());
-            pstmt.setInt(3, isOfficer ? 1 : 0);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Error adding/updating member: " + e.getMessage());
-        }
+        writeQueue.enqueue(new UpsertMember(guildName, playerUuid, isOfficer));
     }
 
     public void removeGuildMemberDB(String guildName, UUID playerUuid) {
-        String sql = "DELETE FROM guild_members WHERE guild_name = ? AND player_uuid = ?";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, guildName);
-            pstmt.setString(2, playerUuid.toString());
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Error removing member: " + e.getMessage());
-        }
+        writeQueue.enqueue(new DeleteMember(guildName, playerUuid));
+    }
+
+    // The whole batch becomes one queued write, so a busy bank costs one transaction per flush
+    public void saveBankLogEntries(List<BankAuditLog.Entry> entries) {
+        if (!entries.isEmpty()) writeQueue.enqueue(new InsertBankLog(List.copyOf(entries)));
+    }
+
+    public void savePlayerProfile(ProfileCache.Profile profile) {
+        writeQueue.enqueue(new UpsertProfile(profile.uuid(), profile.name(), profile.texture(), profile.signature(), profile.lastSeen(), profile.refreshedAt()));
     }
 
     public void updateGuildMemberRoleDB(String guildName, UUID playerUuid, boolean isOfficer) {
@@ -300,275 +597,169 @@ public class DatabaseManager {
     }
 
     public void saveInviteDB(UUID invitedPlayerUuid, String guildName) {
-        String sql = "INSERT OR REPLACE INTO guild_invites(invited_player_uuid, inviting_guild_name) VALUES(?,?)";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, invitedPlayerUuid.toString());
-            pstmt.setString(2, guildName);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Error saving invite: " + e.getMessage());
-        }
+        writeQueue.enqueue(new UpsertInvite(invitedPlayerUuid, guildName));
     }
 
     public void removeInviteDB(UUID invitedPlayerUuid) {
-        String sql = "DELETE FROM guild_invites WHERE invited_player_uuid = ?";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, invitedPlayerUuid.toString());
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Error removing invite: " + e.getMessage());
-        }
+        writeQueue.enqueue(new DeleteInvite(invitedPlayerUuid));
     }
-    
+
     public void clearInvitesFromGuildDB(String guildName) {
-        String sql = "DELETE FROM guild_invites WHERE inviting_guild_name = ?";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, guildName);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Error clearing invites for guild '" + guildName + "': " + e.getMessage());
-        }
+        writeQueue.enqueue(new ClearGuildInvites(guildName));
     }
 
     public void updateGuildLeaderDB(String guildName, UUID newLeaderUuid) {
-        String sql = "UPDATE guilds SET leader_uuid = ? WHERE name = ?";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, newLeaderUuid.toString());
-            pstmt.setString(2, guildName);
-            pstmt.executeUpdate();
-            addGuildMemberDB(guildName, newLeaderUuid, true); 
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Error updating leader: " + e.getMessage());
-        }
+        writeQueue.enqueue(new UpdateLeader(guildName, newLeaderUuid));
+        addGuildMemberDB(guildName, newLeaderUuid, true);
     }
 
     public void updateGuildLevelAndXp(String guildName, int level, long currentXp) {
-        String sql = "UPDATE guilds SET level = ?, current_xp = ? WHERE name = ?";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, level);
-            pstmt.setLong(2, currentXp);
-            pstmt.setString(3, guildName);
-            if (pstmt.executeUpdate() == 0) {
-                plugin.getLogger().warning("Tried to update level/XP for non-existent guild: " + guildName);
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Error updating level/XP: " + e.getMessage());
-        }
+        writeQueue.enqueue(new UpdateLevelAndXp(guildName, level, currentXp, 0L));
+    }
+
+    // Written together with the XP it charged, so a crash can never persist one without the other
+    public void updateGuildUpkeepDB(String guildName, int level, long currentXp, long lastUpkeepMillis) {
+        writeQueue.enqueue(new UpdateLevelAndXp(guildName, level, currentXp, lastUpkeepMillis));
     }
 
     public void saveGuildClaim(String guildName, String worldName, int chunkX, int chunkZ) {
-        String sql = "INSERT OR IGNORE INTO guild_claims(guild_name, world_name, chunk_x, chunk_z) VALUES(?,?,?,?)";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, guildName);
-            pstmt.setString(2, worldName);
-            pstmt.setInt(3, chunkX);
-            pstmt.setInt(4, chunkZ);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Error saving claim: " + e.getMessage());
-        }
+        writeQueue.enqueue(new InsertClaim(guildName, worldName, chunkX, chunkZ));
     }
 
     public void removeGuildClaim(String worldName, int chunkX, int chunkZ) {
-        String sql = "DELETE FROM guild_claims WHERE world_name = ? AND chunk_x = ? AND chunk_z = ?";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, worldName);
-            pstmt.setInt(2, chunkX);
-            pstmt.setInt(3, chunkZ);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Error removing claim: " + e.getMessage());
-        }
+        writeQueue.enqueue(new DeleteClaim(worldName, chunkX, chunkZ));
     }
 
     public void updateGuildHomeDB(String guildName, Location location) {
-        String sql = "UPDATE guilds SET home_world = ?, home_x = ?, home_y = ?, home_z = ?, home_yaw = ?, home_pitch = ? WHERE name = ?";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            if (location != null) {
-                pstmt.setString(1, location.getWorld().getName());
-                pstmt.setDouble(2, location.getX());
-                pstmt.setDouble(3, location.getY());
-                pstmt.setDouble(4, location.getZ());
-                pstmt.setFloat(5, location.getYaw());
-                pstmt.setFloat(6, location.getPitch());
-            } else {
-                pstmt.setNull(1, java.sql.Types.VARCHAR);
-                pstmt.setNull(2, java.sql.Types.REAL);
-                pstmt.setNull(3, java.sql.Types.REAL);
-                pstmt.setNull(4, java.sql.Types.REAL);
-                pstmt.setNull(5, java.sql.Types.REAL);
-                pstmt.setNull(6, java.sql.Types.REAL);
-            }
-            pstmt.setString(7, guildName);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Error updating home: " + e.getMessage());
+        if (location != null) {
+            writeQueue.enqueue(new UpdateHome(guildName, location.getWorld().getName(), location.getX(), location.getY(), location.getZ(), location.getYaw(), location.getPitch()));
+        } else {
+            writeQueue.enqueue(new UpdateHome(guildName, null, null, null, null, null, null));
         }
     }
 
+    // Writes only the slots that differ from the last persisted (or already queued) state of this bank,
+    // so closing an untouched bank costs a few hash compares and no serialization at all.
     public void saveGuildBank(Guild guild) {
-        String deleteSql = "DELETE FROM guild_bank_items WHERE guild_name = ?";
-        String insertSql = "INSERT INTO guild_bank_items(guild_name, slot, item_data) VALUES(?,?,?)";
-        try (Connection conn = getConnection()) {
-            conn.setAutoCommit(false);
-            try (PreparedStatement pstmtDelete = conn.prepareStatement(deleteSql); PreparedStatement pstmtInsert = conn.prepareStatement(insertSql)) {
-                pstmtDelete.setString(1, guild.getName());
-                pstmtDelete.executeUpdate();
-                ItemStack[] bankContents = guild.getBankContents();
-                for (int i = 0; i < bankContents.length; i++) {
-                    if (bankContents[i] != null && bankContents[i].getType() != Material.AIR) {
-                        pstmtInsert.setString(1, guild.getName());
-                        pstmtInsert.setInt(2, i);
-                        try {
-                            pstmtInsert.setString(3, Base64.getEncoder().encodeToString(bankContents[i].serializeAsBytes()));
-                            pstmtInsert.addBatch();
-                        } catch (Exception e) {
-                            plugin.getLogger().warning("Could not serialize bank item for " + guild.getName() + " slot " + i + ": " + e.getMessage());
-                        }
-                    }
-                }
-                pstmtInsert.executeBatch();
-                conn.commit();
-            } catch (SQLException e) {
-                conn.rollback();
-                plugin.getLogger().severe("Error saving guild bank for '" + guild.getName() + "': " + e.getMessage());
+        saveGuildBank(guild, -1L);
+    }
+
+    /**
+     * Saves only the bank slots whose bit is set in dirtySlots, as reported by {@link Guild.BankDeposit}.
+     * Callers must be sure no other slot changed since the last save.
+     */
+    public void saveGuildBank(Guild guild, long dirtySlots) {
+        if (!guild.isBankLoaded()) return; // Nothing in memory can differ from what is stored
+        if (dirtySlots == 0) return;
+        BankShadow shadow = bankShadows.computeIfAbsent(guild.getName(), k -> new BankShadow());
+        // Diff and enqueue under the same lock so concurrent saves can't enqueue out of order
+        synchronized (shadow) {
+            ItemStack[] bankContents = guild.getBankContents();
+            Map<Integer, ItemStack> changedSlots = null;
+            for (int i = 0; i < Guild.BANK_SIZE; i++) {
+                if ((dirtySlots & (1L << i)) == 0) continue;
+                ItemStack item = i < bankContents.length ? bankContents[i] : null;
+                if (item != null && item.getType() == Material.AIR) item = null;
+                int hash = item == null ? 0 : item.hashCode();
+                // A hash mismatch is a sure change; a match is confirmed with equals to rule out collisions
+                if (hash == shadow.hashes[i] && Objects.equals(item, shadow.items[i])) continue;
+                ItemStack copy = item == null ? null : item.clone(); // Shared by shadow and queued write, never mutated
+                shadow.items[i] = copy;
+                shadow.hashes[i] = hash;
+                if (changedSlots == null) changedSlots = new HashMap<>();
+                changedSlots.put(i, copy);
+            }
+            if (changedSlots == null) return;
+            if (blobBankStorage) {
+                // The blob is rewritten whole, but only when something actually changed
+                writeQueue.enqueue(new WriteBankBlob(guild.getName(), shadow.items.clone()));
+            } else {
+                writeQueue.enqueue(new WriteBankSlots(guild.getName(), changedSlots));
             }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("DB error during saveGuildBank: " + e.getMessage());
         }
     }
 
-    public void loadGuildBank(Guild guild) {
-        String sql = "SELECT slot, item_data FROM guild_bank_items WHERE guild_name = ?";
+    /**
+     * Loads one guild's bank into the guild. On failure the guild is left untouched (still unloaded).
+     * @return True if the bank was loaded.
+     */
+    public boolean loadGuildBank(Guild guild) {
         ItemStack[] bankContents = new ItemStack[Guild.BANK_SIZE];
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, guild.getName());
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    int slot = rs.getInt("slot");
-                    if (slot >= 0 && slot < Guild.BANK_SIZE) {
-                        try {
-                            bankContents[slot] = ItemStack.deserializeBytes(Base64.getDecoder().decode(rs.getString("item_data")));
-                        } catch (Exception e) {
-                            plugin.getLogger().warning("Could not deserialize bank item for " + guild.getName() + " slot " + slot + ": " + e.getMessage());
+        try (CachedConnection conn = connectionPool.reader()) {
+            if (blobBankStorage) {
+                PreparedStatement pstmt = conn.prepare("SELECT data FROM guild_banks WHERE guild_name = ?");
+                pstmt.setString(1, guild.getName());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        byte[][] slots = BankBlobCodec.decode(rs.getBytes("data"), Guild.BANK_SIZE);
+                        for (int slot = 0; slot < slots.length; slot++) {
+                            if (slots[slot] != null) bankContents[slot] = deserializeBankItem(guild, slot, slots[slot]);
+                        }
+                    }
+                }
+            } else {
+                PreparedStatement pstmt = conn.prepare("SELECT slot, item_data FROM guild_bank_items WHERE guild_name = ?");
+                pstmt.setString(1, guild.getName());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        int slot = rs.getInt("slot");
+                        if (slot >= 0 && slot < Guild.BANK_SIZE) {
+                            try {
+                                bankContents[slot] = deserializeBankItem(guild, slot, Base64.getDecoder().decode(rs.getString("item_data")));
+                            } catch (IllegalArgumentException e) {
+                                plugin.getLogger().warning("Could not decode bank item for " + guild.getName() + " slot " + slot + ": " + e.getMessage());
+                            }
                         }
                     }
                 }
             }
+            bankShadows.put(guild.getName(), BankShadow.of(bankContents));
             guild.setBankContents(bankContents);
-        } catch (SQLException e) {
+            return true;
+        } catch (SQLException | IOException e) {
             plugin.getLogger().severe("Error loading guild bank for '" + guild.getName() + "': " + e.getMessage());
-            guild.setBankContents(new ItemStack[Guild.BANK_SIZE]);
+            return false;
         }
     }
 
-    public void saveGuildOutposts(Guild guild) {
-        String deleteSql = "DELETE FROM guild_outposts_precise WHERE guild_name = ?";
-        String insertSql = "INSERT INTO guild_outposts_precise(guild_name, outpost_type, world_name, core_x, core_y, core_z, next_tick_timestamp) VALUES(?,?,?,?,?,?,?)";
-        try (Connection conn = getConnection()) {
-            conn.setAutoCommit(false);
-            try (PreparedStatement pstmtDelete = conn.prepareStatement(deleteSql); PreparedStatement pstmtInsert = conn.prepareStatement(insertSql)) {
-                pstmtDelete.setString(1, guild.getName());
-                pstmtDelete.executeUpdate();
-                for (Map.Entry<OutpostType, Guild.ActiveOutpostInfo> entry : guild.getAllActiveOutposts().entrySet()) {
-                    Guild.LocationData locData = entry.getValue().location();
-                    pstmtInsert.setString(1, guild.getName());
-                    pstmtInsert.setString(2, entry.getKey().name());
-                    pstmtInsert.setString(3, locData.worldName());
-                    pstmtInsert.setInt(4, locData.x());
-                    pstmtInsert.setInt(5, locData.y());
-                    pstmtInsert.setInt(6, locData.z());
-                    pstmtInsert.setLong(7, entry.getValue().nextTickTimestamp());
-                    pstmtInsert.addBatch();
-                }
-                pstmtInsert.executeBatch();
-                conn.commit();
-            } catch (SQLException e) {
-                conn.rollback();
-                plugin.getLogger().severe("Error saving outposts for guild '" + guild.getName() + "': " + e.getMessage());
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("DB error during saveGuildOutposts: " + e.getMessage());
-        }
+    public boolean hasPendingBankWrite(String guildName) {
+        return writeQueue.hasPendingWrite(List.of("bank", guildName));
     }
 
-    public void loadGuildOutposts(Guild guild) {
-        String sql = "SELECT outpost_type, world_name, core_x, core_y, core_z, next_tick_timestamp FROM guild_outposts_precise WHERE guild_name = ?";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, guild.getName());
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    try {
-                        OutpostType type = OutpostType.valueOf(rs.getString("outpost_type").toUpperCase());
-                        Guild.LocationData locData = new Guild.LocationData(
-                                rs.getString("world_name"), 
-                                rs.getInt("core_x"), 
-                                rs.getInt("core_y"), 
-                                rs.getInt("core_z"));
-                        long nextTick = rs.getLong("next_tick_timestamp");
-                        guild.addOutpost(type, locData, nextTick);
-                    } catch (IllegalArgumentException e) {
-                        plugin.getLogger().warning("Unknown outpost type or bad data for " + guild.getName() + ": " + e.getMessage());
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Error loading outposts for guild '" + guild.getName() + "': " + e.getMessage());
+    // Called when a bank is evicted from memory; the next load rebuilds the shadow from the database
+    public void releaseBankShadow(String guildName) {
+        bankShadows.remove(guildName);
+    }
+
+    private ItemStack deserializeBankItem(Guild guild, int slot, byte[] data) {
+        try {
+            return ItemStack.deserializeBytes(data);
+        } catch (Exception e) {
+            plugin.getLogger().warning("Could not deserialize bank item for " + guild.getName() + " slot " + slot + ": " + e.getMessage());
+            return null;
         }
     }
-    
+
+    public void saveGuildOutposts(Guild guild) {
+        writeQueue.enqueue(new ReplaceOutposts(guild.getName(), new EnumMap<>(guild.getAllActiveOutposts())));
+    }
+
     public void saveWar(String guild1Name, String guild2Name, long startDate) {
-        String g1 = guild1Name.compareTo(guild2Name) < 0 ? guild1Name : guild2Name;
-        String g2 = guild1Name.compareTo(guild2Name) < 0 ? guild2Name : guild1Name;
-        String sql = "INSERT OR REPLACE INTO guild_wars (guild1_name, guild2_name, start_date, guild1_score, guild2_score) VALUES (?, ?, ?, 0, 0)";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, g1);
-            pstmt.setString(2, g2);
-            pstmt.setLong(3, startDate);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Error saving war: " + e.getMessage());
-        }
+        boolean inOrder = guild1Name.compareTo(guild2Name) < 0;
+        writeQueue.enqueue(new InsertWar(inOrder ? guild1Name : guild2Name, inOrder ? guild2Name : guild1Name, startDate));
     }
 
     public void deleteWar(String guild1Name, String guild2Name) {
-        String g1 = guild1Name.compareTo(guild2Name) < 0 ? guild1Name : guild2Name;
-        String g2 = guild1Name.compareTo(guild2Name) < 0 ? guild2Name : guild1Name;
-        String sql = "DELETE FROM guild_wars WHERE guild1_name = ? AND guild2_name = ?";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, g1);
-            pstmt.setString(2, g2);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Error deleting war: " + e.getMessage());
-        }
+        boolean inOrder = guild1Name.compareTo(guild2Name) < 0;
+        writeQueue.enqueue(new DeleteWar(inOrder ? guild1Name : guild2Name, inOrder ? guild2Name : guild1Name));
     }
-    
+
     public void updateWarScore(String guild1Name, String guild2Name, int guild1ScoreDelta, int guild2ScoreDelta) {
-        String g1 = guild1Name.compareTo(guild2Name) < 0 ? guild1Name : guild2Name;
-        String g2 = guild1Name.compareTo(guild2Name) < 0 ? guild2Name : guild1Name;
-        // Determine which score field to update based on who is g1
-        String scoreFieldForGuild1Param = g1.equals(guild1Name) ? "guild1_score" : "guild2_score";
-        String scoreFieldForGuild2Param = g1.equals(guild1Name) ? "guild2_score" : "guild1_score";
-        int actualDeltaForG1Field = g1.equals(guild1Name) ? guild1ScoreDelta : guild2ScoreDelta;
-        int actualDeltaForG2Field = g1.equals(guild1Name) ? guild2ScoreDelta : guild1ScoreDelta;
-
-        String sql = "UPDATE guild_wars SET guild1_score = guild1_score + ?, guild2_score = guild2_score + ? WHERE guild1_name = ? AND guild2_name = ?";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            // If acting guild (guild1Name) is g1, its points go to guild1_score. Else its points go to guild2_score.
-            if (g1.equals(guild1Name)) { // guild1Name is g1, guild2Name is g2
-                 pstmt.setInt(1, guild1ScoreDelta); // delta for g1_score field
-                 pstmt.setInt(2, guild2ScoreDelta); // delta for g2_score field
-            } else { // guild1Name is g2, guild2Name is g1
-                 pstmt.setInt(1, guild2ScoreDelta); // delta for g1_score field (which is opposing guild here)
-                 pstmt.setInt(2, guild1ScoreDelta); // delta for g2_score field (which is acting guild here)
-            }
-            pstmt.setString(3, g1);
-            pstmt.setString(4, g2);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Error updating war score between " + g1 + " and " + g2 + ": " + e.getMessage());
-            e.printStackTrace();
+        // Stored with the alphabetically smaller guild as guild1, so swap the deltas if needed
+        if (guild1Name.compareTo(guild2Name) < 0) {
+            writeQueue.enqueue(new AddWarScore(guild1Name, guild2Name, guild1ScoreDelta, guild2ScoreDelta));
+        } else {
+            writeQueue.enqueue(new AddWarScore(guild2Name, guild1Name, guild2ScoreDelta, guild1ScoreDelta));
         }
     }
 
@@ -581,15 +772,18 @@ public class DatabaseManager {
         scores.put(guild2Name, 0);
 
         String sql = "SELECT guild1_name, guild1_score, guild2_name, guild2_score FROM guild_wars WHERE guild1_name = ? AND guild2_name = ?";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (CachedConnection conn = connectionPool.reader()) {
+            PreparedStatement pstmt = conn.prepare(sql);
             pstmt.setString(1, g1_norm);
             pstmt.setString(2, g2_norm);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                // rs.getString("guild1_name") will be g1_norm
-                // rs.getString("guild2_name") will be g2_norm
-                scores.put(g1_norm, rs.getInt("guild1_score"));
-                scores.put(g2_norm, rs.getInt("guild2_score"));
+            // Close the ResultSet so the pooled reader doesn't keep a WAL snapshot open
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    // rs.getString("guild1_name") will be g1_norm
+                    // rs.getString("guild2_name") will be g2_norm
+                    scores.put(g1_norm, rs.getInt("guild1_score"));
+                    scores.put(g2_norm, rs.getInt("guild2_score"));
+                }
             }
         } catch (SQLException e) {
             plugin.getLogger().severe("Error getting war score between " + g1_norm + " and " + g2_norm + ": " + e.getMessage());
@@ -603,21 +797,385 @@ public class DatabaseManager {
         return resultScores;
     }
 
-    public Map<String, List<String>> loadActiveWars() {
-        Map<String, List<String>> warsMap = new HashMap<>();
-        String sql = "SELECT guild1_name, guild2_name FROM guild_wars"; 
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql); ResultSet rs = pstmt.executeQuery()) {
+    // Marks every stored war (and its score) in the matrix; guilds must already have their ids. Returns the number of wars loaded.
+    public int loadActiveWars(Map<String, Guild> guildsMap, WarMatrix warMatrix) {
+        int loaded = 0;
+        long start = System.nanoTime();
+        String sql = "SELECT guild1_name, guild2_name, guild1_score, guild2_score FROM guild_wars";
+        try (CachedConnection conn = connectionPool.reader(); ResultSet rs = conn.prepare(sql).executeQuery()) {
             while (rs.next()) {
                 String g1_db = rs.getString("guild1_name");
                 String g2_db = rs.getString("guild2_name");
-                warsMap.computeIfAbsent(g1_db, k -> new ArrayList<>()).add(g2_db);
-                warsMap.computeIfAbsent(g2_db, k -> new ArrayList<>()).add(g1_db);
+                Guild g1 = guildsMap.get(g1_db);
+                Guild g2 = guildsMap.get(g2_db);
+                if (g1 == null || g2 == null) {
+                    plugin.getLogger().warning("Skipping war between '" + g1_db + "' and '" + g2_db + "': guild not loaded.");
+                    continue;
+                }
+                warMatrix.setAtWar(g1.getId(), g2.getId(), true);
+                warMatrix.setScores(g1.getId(), g2.getId(), rs.getInt("guild1_score"), rs.getInt("guild2_score"));
+                loaded++;
             }
         } catch (SQLException e) {
             plugin.getLogger().severe("Error loading active war relationships: " + e.getMessage());
             e.printStackTrace();
-            return Collections.emptyMap();
         }
-        return warsMap;
+        logLoadTiming("guild_wars", loaded, start);
+        return loaded;
+    }
+
+    // --- Queued write operations (applied on the writer thread, inside a batch transaction) ---
+
+    private static boolean touchesWar(WriteOperation older, String g1, String g2) {
+        return older instanceof AddWarScore s && s.guild1().equals(g1) && s.guild2().equals(g2);
+    }
+
+    private record InsertGuild(String name, UUID leader, int level, long currentXp, long lastUpkeep, String homeWorld,
+                               Double homeX, Double homeY, Double homeZ, Float homeYaw, Float homePitch) implements WriteOperation {
+        public Object coalesceKey() { return null; }
+        public String guildName() { return name; }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            String sqlGuild = "INSERT INTO guilds(name, leader_uuid, level, current_xp, last_upkeep, home_world, home_x, home_y, home_z, home_yaw, home_pitch) VALUES(?,?,?,?,?,?,?,?,?,?,?)";
+            String sqlMember = "INSERT OR REPLACE INTO guild_members(guild_name, player_uuid, is_officer) VALUES(?,?,?)";
+            PreparedStatement pstmtGuild = conn.prepare(sqlGuild);
+            PreparedStatement pstmtMember = conn.prepare(sqlMember);
+            pstmtGuild.setString(1, name);
+            pstmtGuild.setString(2, leader.toString());
+            pstmtGuild.setInt(3, level);
+            pstmtGuild.setLong(4, currentXp);
+            pstmtGuild.setLong(5, lastUpkeep);
+            pstmtGuild.setString(6, homeWorld);
+            pstmtGuild.setObject(7, homeX);
+            pstmtGuild.setObject(8, homeY);
+            pstmtGuild.setObject(9, homeZ);
+            pstmtGuild.setObject(10, homeYaw);
+            pstmtGuild.setObject(11, homePitch);
+            pstmtGuild.executeUpdate();
+            pstmtMember.setString(1, name);
+            pstmtMember.setString(2, leader.toString());
+            pstmtMember.setInt(3, 1);
+            pstmtMember.executeUpdate();
+        }
+    }
+
+    // Deletes child rows explicitly rather than relying only on ON DELETE CASCADE (invites have no foreign key),
+    // which also makes it safe to discard every other pending write for this guild.
+    private record DeleteGuild(String name) implements WriteOperation {
+        public Object coalesceKey() { return null; }
+        public String guildName() { return name; }
+        public boolean hasSupersedes() { return true; }
+        public boolean supersedes(WriteOperation older) { return name.equals(older.guildName()); }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            String[] sqls = {
+                    "DELETE FROM guild_members WHERE guild_name = ?",
+                    "DELETE FROM guild_claims WHERE guild_name = ?",
+                    "DELETE FROM guild_bank_items WHERE guild_name = ?",
+                    "DELETE FROM guild_banks WHERE guild_name = ?",
+                    "DELETE FROM guild_outposts_precise WHERE guild_name = ?",
+                    "DELETE FROM guild_bank_log WHERE guild_name = ?",
+                    "DELETE FROM guild_invites WHERE inviting_guild_name = ?",
+                    "DELETE FROM guilds WHERE name = ?"
+            };
+            for (String sql : sqls) {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setString(1, name);
+                pstmt.executeUpdate();
+            }
+            PreparedStatement pstmt = conn.prepare("DELETE FROM guild_wars WHERE guild1_name = ? OR guild2_name = ?");
+            pstmt.setString(1, name);
+            pstmt.setString(2, name);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private record UpsertMember(String guild, UUID player, boolean officer) implements WriteOperation {
+        public Object coalesceKey() { return List.of("member", guild, player); }
+        public String guildName() { return guild; }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            PreparedStatement pstmt = conn.prepare("INSERT OR REPLACE INTO guild_members(guild_name, player_uuid, is_officer) VALUES(?,?,?)");
+            pstmt.setString(1, guild);
+            pstmt.setString(2, player.toString());
+            pstmt.setInt(3, officer ? 1 : 0);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Entries of a guild deleted before the batch landed are skipped rather than left behind for a future namesake
+    private record InsertBankLog(List<BankAuditLog.Entry> entries) implements WriteOperation {
+        public Object coalesceKey() { return null; }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            PreparedStatement pstmt = conn.prepare("INSERT INTO guild_bank_log(guild_name, player_uuid, material, amount, slot, created_at) "
+                    + "SELECT ?,?,?,?,?,? WHERE EXISTS (SELECT 1 FROM guilds WHERE name = ?)");
+            for (BankAuditLog.Entry entry : entries) {
+                pstmt.setString(1, entry.guildName());
+                pstmt.setString(2, entry.player().toString());
+                pstmt.setString(3, entry.material().name());
+                pstmt.setInt(4, entry.amount());
+                pstmt.setInt(5, entry.slot());
+                pstmt.setLong(6, entry.timestamp());
+                pstmt.setString(7, entry.guildName());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private record UpsertProfile(UUID player, String name, String texture, String signature, long lastSeen, long refreshedAt) implements WriteOperation {
+        public Object coalesceKey() { return List.of("profile", player); }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            PreparedStatement pstmt = conn.prepare("INSERT OR REPLACE INTO player_profiles(player_uuid, name, texture, texture_signature, last_seen, refreshed_at) VALUES(?,?,?,?,?,?)");
+            pstmt.setString(1, player.toString());
+            pstmt.setString(2, name);
+            pstmt.setString(3, texture);
+            pstmt.setString(4, signature);
+            pstmt.setLong(5, lastSeen);
+            pstmt.setLong(6, refreshedAt);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private record DeleteMember(String guild, UUID player) implements WriteOperation {
+        public Object coalesceKey() { return List.of("member", guild, player); }
+        public String guildName() { return guild; }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            PreparedStatement pstmt = conn.prepare("DELETE FROM guild_members WHERE guild_name = ? AND player_uuid = ?");
+            pstmt.setString(1, guild);
+            pstmt.setString(2, player.toString());
+            pstmt.executeUpdate();
+        }
+    }
+
+    private record UpsertInvite(UUID player, String guild) implements WriteOperation {
+        public Object coalesceKey() { return List.of("invite", player); }
+        public String guildName() { return guild; }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            PreparedStatement pstmt = conn.prepare("INSERT OR REPLACE INTO guild_invites(invited_player_uuid, inviting_guild_name) VALUES(?,?)");
+            pstmt.setString(1, player.toString());
+            pstmt.setString(2, guild);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private record DeleteInvite(UUID player) implements WriteOperation {
+        public Object coalesceKey() { return List.of("invite", player); }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            PreparedStatement pstmt = conn.prepare("DELETE FROM guild_invites WHERE invited_player_uuid = ?");
+            pstmt.setString(1, player.toString());
+            pstmt.executeUpdate();
+        }
+    }
+
+    private record ClearGuildInvites(String guild) implements WriteOperation {
+        public Object coalesceKey() { return null; }
+        public boolean hasSupersedes() { return true; }
+        public boolean supersedes(WriteOperation older) { return older instanceof UpsertInvite i && i.guild().equals(guild); }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            PreparedStatement pstmt = conn.prepare("DELETE FROM guild_invites WHERE inviting_guild_name = ?");
+            pstmt.setString(1, guild);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private record UpdateLeader(String guild, UUID leader) implements WriteOperation {
+        public Object coalesceKey() { return List.of("leader", guild); }
+        public String guildName() { return guild; }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            PreparedStatement pstmt = conn.prepare("UPDATE guilds SET leader_uuid = ? WHERE name = ?");
+            pstmt.setString(1, leader.toString());
+            pstmt.setString(2, guild);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // lastUpkeep of 0 leaves the stored value alone; coalescing keeps the latest billing time seen
+    private record UpdateLevelAndXp(String guild, int level, long currentXp, long lastUpkeep) implements WriteOperation {
+        public Object coalesceKey() { return List.of("xp", guild); }
+        public String guildName() { return guild; }
+        public WriteOperation coalesceWith(WriteOperation older) {
+            long olderUpkeep = ((UpdateLevelAndXp) older).lastUpkeep();
+            return olderUpkeep > lastUpkeep ? new UpdateLevelAndXp(guild, level, currentXp, olderUpkeep) : this;
+        }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            PreparedStatement pstmt = conn.prepare("UPDATE guilds SET level = ?, current_xp = ?, last_upkeep = MAX(last_upkeep, ?) WHERE name = ?");
+            pstmt.setInt(1, level);
+            pstmt.setLong(2, currentXp);
+            pstmt.setLong(3, lastUpkeep);
+            pstmt.setString(4, guild);
+            if (pstmt.executeUpdate() == 0) {
+                log.warning("Tried to update level/XP for non-existent guild: " + guild);
+            }
+        }
+    }
+
+    private record UpdateHome(String guild, String world, Double x, Double y, Double z, Float yaw, Float pitch) implements WriteOperation {
+        public Object coalesceKey() { return List.of("home", guild); }
+        public String guildName() { return guild; }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            PreparedStatement pstmt = conn.prepare("UPDATE guilds SET home_world = ?, home_x = ?, home_y = ?, home_z = ?, home_yaw = ?, home_pitch = ? WHERE name = ?");
+            pstmt.setString(1, world);
+            pstmt.setObject(2, x, java.sql.Types.REAL);
+            pstmt.setObject(3, y, java.sql.Types.REAL);
+            pstmt.setObject(4, z, java.sql.Types.REAL);
+            pstmt.setObject(5, yaw, java.sql.Types.REAL);
+            pstmt.setObject(6, pitch, java.sql.Types.REAL);
+            pstmt.setString(7, guild);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Claims are keyed by chunk, so claim -> unclaim -> claim by another guild collapses to the last write. That write
+    // replaces whatever row is stored, since the unclaim it stands in for may never reach the database.
+    // Package-private so the write-order tests run the real SQL.
+    record InsertClaim(String guild, String world, int chunkX, int chunkZ) implements WriteOperation {
+        public Object coalesceKey() { return List.of("claim", world, chunkX, chunkZ); }
+        public String guildName() { return guild; }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            PreparedStatement pstmt = conn.prepare("INSERT OR REPLACE INTO guild_claims(guild_name, world_name, chunk_x, chunk_z) VALUES(?,?,?,?)");
+            pstmt.setString(1, guild);
+            pstmt.setString(2, world);
+            pstmt.setInt(3, chunkX);
+            pstmt.setInt(4, chunkZ);
+            pstmt.executeUpdate();
+        }
+    }
+
+    record DeleteClaim(String world, int chunkX, int chunkZ) implements WriteOperation {
+        public Object coalesceKey() { return List.of("claim", world, chunkX, chunkZ); }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            PreparedStatement pstmt = conn.prepare("DELETE FROM guild_claims WHERE world_name = ? AND chunk_x = ? AND chunk_z = ?");
+            pstmt.setString(1, world);
+            pstmt.setInt(2, chunkX);
+            pstmt.setInt(3, chunkZ);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Slot-level upserts and deletes (null item = empty slot). Pending writes for the same bank merge, newest slot value winning.
+    private record WriteBankSlots(String guild, Map<Integer, ItemStack> slots) implements WriteOperation {
+        public Object coalesceKey() { return List.of("bank", guild); }
+        public String guildName() { return guild; }
+        public WriteOperation coalesceWith(WriteOperation older) {
+            Map<Integer, ItemStack> merged = new HashMap<>(((WriteBankSlots) older).slots);
+            merged.putAll(slots);
+            return new WriteBankSlots(guild, merged);
+        }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            PreparedStatement pstmtUpsert = conn.prepare("INSERT OR REPLACE INTO guild_bank_items(guild_name, slot, item_data) VALUES(?,?,?)");
+            PreparedStatement pstmtDelete = conn.prepare("DELETE FROM guild_bank_items WHERE guild_name = ? AND slot = ?");
+            for (Map.Entry<Integer, ItemStack> entry : slots.entrySet()) {
+                int slot = entry.getKey();
+                if (entry.getValue() == null) {
+                    pstmtDelete.setString(1, guild);
+                    pstmtDelete.setInt(2, slot);
+                    pstmtDelete.addBatch();
+                    continue;
+                }
+                try {
+                    pstmtUpsert.setString(1, guild);
+                    pstmtUpsert.setInt(2, slot);
+                    pstmtUpsert.setString(3, Base64.getEncoder().encodeToString(entry.getValue().serializeAsBytes()));
+                    pstmtUpsert.addBatch();
+                } catch (Exception e) {
+                    log.warning("Could not serialize bank item for " + guild + " slot " + slot + ": " + e.getMessage());
+                }
+            }
+            pstmtUpsert.executeBatch();
+            pstmtDelete.executeBatch();
+        }
+    }
+
+    // Whole-bank write in the compressed blob format; items are serialized here, on the writer thread
+    private record WriteBankBlob(String guild, ItemStack[] contents) implements WriteOperation {
+        public Object coalesceKey() { return List.of("bank", guild); }
+        public String guildName() { return guild; }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            byte[][] slots = new byte[contents.length][];
+            for (int i = 0; i < contents.length; i++) {
+                if (contents[i] == null) continue;
+                try {
+                    slots[i] = contents[i].serializeAsBytes();
+                } catch (Exception e) {
+                    log.warning("Could not serialize bank item for " + guild + " slot " + i + ": " + e.getMessage());
+                }
+            }
+            byte[] blob;
+            try {
+                blob = BankBlobCodec.encode(slots);
+            } catch (IOException e) {
+                throw new SQLException("Could not encode bank for " + guild, e);
+            }
+            PreparedStatement pstmt = conn.prepare("INSERT OR REPLACE INTO guild_banks(guild_name, format_version, data) VALUES(?,?,?)");
+            pstmt.setString(1, guild);
+            pstmt.setInt(2, BankBlobCodec.VERSION);
+            pstmt.setBytes(3, blob);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private record ReplaceOutposts(String guild, Map<OutpostType, Guild.ActiveOutpostInfo> outposts) implements WriteOperation {
+        public Object coalesceKey() { return List.of("outposts", guild); }
+        public String guildName() { return guild; }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            PreparedStatement pstmtDelete = conn.prepare("DELETE FROM guild_outposts_precise WHERE guild_name = ?");
+            PreparedStatement pstmtInsert = conn.prepare("INSERT INTO guild_outposts_precise(guild_name, outpost_type, world_name, core_x, core_y, core_z, next_tick_timestamp) VALUES(?,?,?,?,?,?,?)");
+            pstmtDelete.setString(1, guild);
+            pstmtDelete.executeUpdate();
+            for (Map.Entry<OutpostType, Guild.ActiveOutpostInfo> entry : outposts.entrySet()) {
+                Guild.LocationData locData = entry.getValue().location();
+                pstmtInsert.setString(1, guild);
+                pstmtInsert.setString(2, entry.getKey().name());
+                pstmtInsert.setString(3, locData.worldName());
+                pstmtInsert.setInt(4, locData.x());
+                pstmtInsert.setInt(5, locData.y());
+                pstmtInsert.setInt(6, locData.z());
+                pstmtInsert.setLong(7, entry.getValue().nextTickTimestamp());
+                pstmtInsert.addBatch();
+            }
+            pstmtInsert.executeBatch();
+        }
+    }
+
+    // War writes use normalized (guild1 < guild2) names. Starting or ending a war resets the score,
+    // so it makes any pending score deltas for the pair moot.
+    private record InsertWar(String guild1, String guild2, long startDate) implements WriteOperation {
+        public Object coalesceKey() { return List.of("war", guild1, guild2); }
+        public boolean hasSupersedes() { return true; }
+        public boolean supersedes(WriteOperation older) { return touchesWar(older, guild1, guild2); }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            PreparedStatement pstmt = conn.prepare("INSERT OR REPLACE INTO guild_wars (guild1_name, guild2_name, start_date, guild1_score, guild2_score) VALUES (?, ?, ?, 0, 0)");
+            pstmt.setString(1, guild1);
+            pstmt.setString(2, guild2);
+            pstmt.setLong(3, startDate);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private record DeleteWar(String guild1, String guild2) implements WriteOperation {
+        public Object coalesceKey() { return List.of("war", guild1, guild2); }
+        public boolean hasSupersedes() { return true; }
+        public boolean supersedes(WriteOperation older) { return touchesWar(older, guild1, guild2); }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            PreparedStatement pstmt = conn.prepare("DELETE FROM guild_wars WHERE guild1_name = ? AND guild2_name = ?");
+            pstmt.setString(1, guild1);
+            pstmt.setString(2, guild2);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Score deltas merge by addition, so a burst of kills becomes a single UPDATE
+    private record AddWarScore(String guild1, String guild2, int guild1Delta, int guild2Delta) implements WriteOperation {
+        public Object coalesceKey() { return List.of("warscore", guild1, guild2); }
+        public WriteOperation coalesceWith(WriteOperation older) {
+            AddWarScore o = (AddWarScore) older;
+            return new AddWarScore(guild1, guild2, o.guild1Delta + guild1Delta, o.guild2Delta + guild2Delta);
+        }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            PreparedStatement pstmt = conn.prepare("UPDATE guild_wars SET guild1_score = guild1_score + ?, guild2_score = guild2_score + ? WHERE guild1_name = ? AND guild2_name = ?");
+            pstmt.setInt(1, guild1Delta);
+            pstmt.setInt(2, guild2Delta);
+            pstmt.setString(3, guild1);
+            pstmt.setString(4, guild2);
+            pstmt.executeUpdate();
+        }
     }
 }
@@ -0,0 +1,118 @@
+package com.guildwars.storage;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Opens tuned SQLite connections and pools a few long-lived read-only ones.
+ * In WAL mode readers never block the single writer (the write-behind queue) and vice versa,
+ * so the main thread can read while a batch is committing.
+ */
+public class SqliteConnectionPool {
+
+    private static final long READER_WAIT_MILLIS = 5000L;
+
+    private final String url;
+    private final Logger logger;
+    private final int maxReaders;
+    private final long mmapSizeBytes;
+    private final int cacheSizeKb;
+    private final int busyTimeoutMillis;
+
+    private final BlockingQueue<CachedConnection> idleReaders;
+    private final List<CachedConnection> allReaders = new ArrayList<>(); // Guarded by this
+    private boolean closed = false; // Guarded by this
+
+    public SqliteConnectionPool(String url, Logger logger, int maxReaders, long mmapSizeBytes, int cacheSizeKb, int busyTimeoutMillis) {
+        this.url = url;
+        this.logger = logger;
+        this.maxReaders = Math.max(1, maxReaders);
+        this.mmapSizeBytes = Math.max(0, mmapSizeBytes);
+        this.cacheSizeKb = Math.max(0, cacheSizeKb);
+        this.busyTimeoutMillis = Math.max(0, busyTimeoutMillis);
+        this.idleReaders = new ArrayBlockingQueue<>(this.maxReaders);
+    }
+
+    /**
+     * Opens a new read-write connection owned by the caller (closing it really closes it).
+     * Used by the write-behind thread and for schema setup.
+     */
+    public CachedConnection openWriter() throws SQLException {
+        return new CachedConnection(open(false), null);
+    }
+
+    /**
+     * Borrows a read-only connection. Closing the returned connection hands it back to the pool.
+     */
+    public CachedConnection reader() throws SQLException {
+        CachedConnection conn = idleReaders.poll();
+        if (conn != null) return conn;
+        synchronized (this) {
+            if (closed) throw new SQLException("Connection pool is closed");
+            if (allReaders.size() < maxReaders) {
+                conn = new CachedConnection(open(true), this::release);
+                allReaders.add(conn);
+                return conn;
+            }
+        }
+        try {
+            conn = idleReaders.poll(READER_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database reader", e);
+        }
+        if (conn == null) throw new SQLException("Timed out waiting for a database reader connection");
+        return conn;
+    }
+
+    private void release(CachedConnection conn) {
+        synchronized (this) {
+            if (closed || conn.isBroken()) {
+                allReaders.remove(conn);
+                conn.closeUnderlying();
+                return;
+            }
+        }
+        idleReaders.offer(conn);
+    }
+
+    public synchronized void close() {
+        closed = true;
+        for (CachedConnection conn : allReaders) {
+            conn.closeUnderlying();
+        }
+        allReaders.clear();
+        idleReaders.clear();
+    }
+
+    private Connection open(boolean readOnly) throws SQLException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            logger.severe("SQLite JDBC driver not found! Ensure it's in the classpath.");
+            throw new SQLException("SQLite JDBC driver not found", e);
+        }
+        Connection conn = DriverManager.getConnection(url);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + busyTimeoutMillis);
+            stmt.execute("PRAGMA journal_mode = WAL"); // Persistent in the file; cheap to repeat
+            stmt.execute("PRAGMA synchronous = NORMAL"); // Safe with WAL: only the last commits can be lost on power failure
+            stmt.execute("PRAGMA foreign_keys = ON");
+            stmt.execute("PRAGMA mmap_size = " + mmapSizeBytes);
+            stmt.execute("PRAGMA cache_size = -" + cacheSizeKb); // Negative means KiB rather than pages
+            if (readOnly) stmt.execute("PRAGMA query_only = ON");
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return conn;
+    }
+}
@@ -0,0 +1,334 @@
+package com.guildwars.storage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Single-writer, write-behind persistence pipeline.
+ * Callers enqueue {@link WriteOperation}s and return immediately; a background thread applies them
+ * in batched transactions. Pending writes with the same key are coalesced, so ten XP updates become one UPDATE.
+ */
+public class WriteBehindQueue {
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        CachedConnection open() throws SQLException;
+    }
+
+    public record Metrics(int queueDepth, int peakQueueDepth, long enqueued, long coalesced, long superseded,
+                          long applied, long batches, long failedBatches, long retries, long dropped,
+                          double lastFlushMillis, double avgFlushMillis, double maxFlushMillis) {}
+
+    private final Logger logger;
+    private final ConnectionFactory connectionFactory;
+    private final long flushIntervalNanos;
+    private final int maxBatchSize;
+    private final int maxRetries;
+
+    private final Object lock = new Object();
+    private final Object shutdownLock = new Object(); // Serializes connection use by threads other than the writer after shutdown
+    private final LinkedHashMap<Object, WriteOperation> pending = new LinkedHashMap<>(); // Enqueue order. Guarded by lock
+    private long uncoalescedSequence = 0; // Guarded by lock; gives key-less writes a unique slot
+    private boolean stopRequested = false; // Guarded by lock
+    private final Set<Object> inFlightKeys = new HashSet<>(); // Keys of the batch being written. Guarded by lock
+    private Thread writerThread;
+    private CachedConnection connection; // Only touched by the thread currently applying writes
+
+    // Metrics
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong superseded = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos = 0;
+    private volatile long maxFlushNanos = 0;
+    private volatile int peakQueueDepth = 0;
+
+    public WriteBehindQueue(Logger logger, ConnectionFactory connectionFactory, long flushIntervalMillis, int maxBatchSize, int maxRetries) {
+        this.logger = logger;
+        this.connectionFactory = connectionFactory;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, flushIntervalMillis));
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxRetries = Math.max(0, maxRetries);
+    }
+
+    public void start() {
+        if (writerThread != null) return;
+        writerThread = new Thread(this::runWriter, "GuildWars-DB-Writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    void enqueue(WriteOperation op) {
+        boolean late;
+        synchronized (lock) {
+            enqueued.incrementAndGet();
+            late = stopRequested;
+            if (!late) enqueuePending(op);
+        }
+        if (late) applyLate(op); // Outside the lock: the writer needs it to finish its last batch
+    }
+
+    // Caller holds lock
+    private void enqueuePending(WriteOperation op) {
+        if (op.hasSupersedes()) {
+            Iterator<WriteOperation> it = pending.values().iterator();
+            while (it.hasNext()) {
+                if (op.supersedes(it.next())) {
+                    it.remove();
+                    superseded.incrementAndGet();
+                }
+            }
+        }
+        Object key = op.coalesceKey();
+        if (key == null) {
+            key = ++uncoalescedSequence; // Boxed Long never equals a real key
+        } else {
+            // The merged write moves to the tail: it may depend on writes queued after the older one
+            // (a claim on a reused chunk must land after its new guild's INSERT), never the other way round
+            WriteOperation older = pending.remove(key);
+            if (older != null) {
+                op = op.coalesceWith(older);
+                coalesced.incrementAndGet();
+            }
+        }
+        pending.put(key, op);
+        int depth = pending.size();
+        if (depth > peakQueueDepth) peakQueueDepth = depth;
+        if (depth == 1 || depth >= maxBatchSize) {
+            lock.notifyAll();
+        }
+    }
+
+    // A write that arrives after shutdown started is applied on the caller rather than lost. It waits for the writer
+    // thread to exit and holds shutdownLock, so the connection is never used by two threads at once.
+    private void applyLate(WriteOperation op) {
+        logger.warning("Write enqueued after persistence shutdown; applying synchronously.");
+        if (!awaitWriterExit()) {
+            dropped.incrementAndGet();
+            logger.severe("Dropping late database write " + op.getClass().getSimpleName() + " (key " + op.coalesceKey() + "): interrupted while waiting for the writer.");
+            return;
+        }
+        synchronized (shutdownLock) {
+            applyIndividually(List.of(op));
+            closeConnection();
+        }
+    }
+
+    private boolean awaitWriterExit() {
+        if (writerThread == null || Thread.currentThread() == writerThread) return true;
+        try {
+            writerThread.join();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Stops accepting writes and blocks until everything pending has been written.
+     * If the writer thread died, the remainder is drained on the calling thread.
+     */
+    public void shutdown(long progressLogIntervalMillis) {
+        synchronized (lock) {
+            stopRequested = true;
+            lock.notifyAll();
+        }
+        if (writerThread != null) {
+            try {
+                while (writerThread.isAlive()) {
+                    writerThread.join(Math.max(1, progressLogIntervalMillis));
+                    if (writerThread.isAlive()) {
+                        logger.info("Waiting for " + getQueueDepth() + " pending database writes to flush...");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warning("Interrupted while waiting for the database writer; draining on this thread.");
+            }
+        }
+        List<WriteOperation> leftovers;
+        synchronized (lock) {
+            leftovers = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        synchronized (shutdownLock) {
+            if (!leftovers.isEmpty() && (writerThread == null || !writerThread.isAlive())) {
+                logger.warning("Draining " + leftovers.size() + " database writes on the shutdown thread.");
+                flush(leftovers);
+            }
+            closeConnection();
+        }
+    }
+
+    /**
+     * @return True if a write with this key is queued or currently being committed.
+     */
+    boolean hasPendingWrite(Object key) {
+        synchronized (lock) {
+            return pending.containsKey(key) || inFlightKeys.contains(key);
+        }
+    }
+
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    public Metrics getMetrics() {
+        long batchCount = batches.get();
+        return new Metrics(getQueueDepth(), peakQueueDepth, enqueued.get(), coalesced.get(), superseded.get(),
+                applied.get(), batchCount, failedBatches.get(), retries.get(), dropped.get(),
+                lastFlushNanos / 1_000_000.0,
+                batchCount == 0 ? 0.0 : (totalFlushNanos.get() / (double) batchCount) / 1_000_000.0,
+                maxFlushNanos / 1_000_000.0);
+    }
+
+    private void runWriter() {
+        while (true) {
+            List<WriteOperation> batch;
+            synchronized (lock) {
+                try {
+                    while (pending.isEmpty() && !stopRequested) {
+                        lock.wait();
+                    }
+                    // Batch window: give more writes a chance to arrive (and coalesce) before flushing
+                    long deadline = System.nanoTime() + flushIntervalNanos;
+                    long remaining;
+                    while (!stopRequested && pending.size() < maxBatchSize && (remaining = deadline - System.nanoTime()) > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    logger.warning("Database writer interrupted; remaining writes will be drained on shutdown.");
+                    return;
+                }
+                if (pending.isEmpty()) {
+                    if (stopRequested) break;
+                    continue;
+                }
+                batch = takeBatch();
+            }
+            flush(batch);
+            synchronized (lock) {
+                inFlightKeys.clear();
+            }
+        }
+        closeConnection();
+    }
+
+    private List<WriteOperation> takeBatch() {
+        List<WriteOperation> batch = new ArrayList<>(Math.min(pending.size(), maxBatchSize));
+        Iterator<Map.Entry<Object, WriteOperation>> it = pending.entrySet().iterator();
+        while (it.hasNext() && batch.size() < maxBatchSize) {
+            Map.Entry<Object, WriteOperation> entry = it.next();
+            batch.add(entry.getValue());
+            inFlightKeys.add(entry.getKey());
+            it.remove();
+        }
+        return batch;
+    }
+
+    private void flush(List<WriteOperation> batch) {
+        long start = System.nanoTime();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                applyBatch(batch);
+                applied.addAndGet(batch.size());
+                break;
+            } catch (SQLException e) {
+                failedBatches.incrementAndGet();
+                closeConnection(); // Start the next attempt from a fresh connection
+                if (attempt >= maxRetries) {
+                    logger.severe("Database batch of " + batch.size() + " writes failed " + (attempt + 1) + " times (" + e.getMessage() + "). Retrying writes one by one.");
+                    applyIndividually(batch);
+                    break;
+                }
+                retries.incrementAndGet();
+                logger.warning("Database batch failed (" + e.getMessage() + "); retry " + (attempt + 1) + "/" + maxRetries + ".");
+                sleepQuietly(100L << attempt);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        batches.incrementAndGet();
+        totalFlushNanos.addAndGet(elapsed);
+        lastFlushNanos = elapsed;
+        if (elapsed > maxFlushNanos) maxFlushNanos = elapsed;
+    }
+
+    private void applyBatch(List<WriteOperation> batch) throws SQLException {
+        CachedConnection cached = connection();
+        Connection conn = cached.raw();
+        conn.setAutoCommit(false);
+        try {
+            for (WriteOperation op : batch) {
+                op.apply(cached, logger);
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException rollbackError) {
+                e.addSuppressed(rollbackError);
+            }
+            throw e;
+        } finally {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException ignored) {
+                // Connection is likely broken; it will be reopened on the next attempt
+            }
+        }
+    }
+
+    // Isolates a poison write so the rest of a failed batch still lands
+    private void applyIndividually(List<WriteOperation> ops) {
+        for (WriteOperation op : ops) {
+            try {
+                applyBatch(List.of(op));
+                applied.incrementAndGet();
+            } catch (SQLException e) {
+                dropped.incrementAndGet();
+                closeConnection();
+                logger.severe("Dropping database write " + op.getClass().getSimpleName() + " (key " + op.coalesceKey() + "): " + e.getMessage());
+            }
+        }
+    }
+
+    private CachedConnection connection() throws SQLException {
+        if (connection == null || connection.isBroken()) {
+            connection = connectionFactory.open();
+        }
+        return connection;
+    }
+
+    private void closeConnection() {
+        if (connection == null) return;
+        connection.close();
+        connection = null;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.guildwars.storage;
+
+import java.sql.SQLException;
+import java.util.logging.Logger;
+
+/**
+ * One queued database mutation, applied later by the {@link WriteBehindQueue} writer thread.
+ * Implementations must be immutable snapshots, since they run after the caller has moved on.
+ */
+interface WriteOperation {
+
+    /**
+     * Identifies the row(s) this write targets. A newer write with an equal key coalesces with the pending one,
+     * and the merged write moves to the tail of the queue. Null means the write never coalesces.
+     */
+    Object coalesceKey();
+
+    /**
+     * Merges this (newer) write with an older pending write of the same key. By default the newer snapshot wins.
+     */
+    default WriteOperation coalesceWith(WriteOperation older) {
+        return this;
+    }
+
+    /**
+     * True if enqueuing this write may discard other pending writes (see {@link #supersedes}).
+     * Kept separate so the queue only scans for the rare writes that need it.
+     */
+    default boolean hasSupersedes() {
+        return false;
+    }
+
+    /**
+     * @return True if the older pending write is made moot by this one and can be dropped.
+     */
+    default boolean supersedes(WriteOperation older) {
+        return false;
+    }
+
+    /**
+     * The guild whose rows this write touches, or null. Used when a guild is deleted.
+     */
+    default String guildName() {
+        return null;
+    }
+
+    /**
+     * Runs the write's SQL. Statements from {@code conn.prepare} are cached and must not be closed.
+     */
+    void apply(CachedConnection conn, Logger log) throws SQLException;
+}
@@ -0,0 +1,220 @@
+package com.guildwars.guild;
+
+import com.guildwars.guild.outposts.OutpostScheduler;
+import com.guildwars.guild.outposts.OutpostType;
+import org.bukkit.Server;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Commands, upkeep ticks and outpost ticks all hitting one guild at once, with every mutation handed to a single
+ * "main thread" the way the plugin does it. The real OutpostScheduler polls on a background thread and hands the
+ * due outposts over; if anything mutated the guild elsewhere, updates would be lost and the ledger would not add up.
+ */
+class GuildConfinementTest {
+
+    private static final long COMMAND_XP = 7L;
+    private static final long OUTPOST_XP = 3L;
+    private static final long UPKEEP_PER_CHUNK = 1L;
+    private static final int COMMAND_THREADS = 4;
+    private static final int COMMANDS_PER_THREAD = 2000;
+
+    private ExecutorService mainThread;
+    private ScheduledExecutorService asyncThreads;
+    private Thread serverThread;
+    private Plugin plugin;
+
+    // Confined to the main thread, like the guild itself
+    private Guild guild;
+    private final Set<String> expectedClaims = new HashSet<>();
+    private final Set<OutpostType> expectedOutposts = EnumSet.noneOf(OutpostType.class);
+    private long xpIn = 0;
+    private long xpOut = 0;
+    private long outpostRuns = 0;
+
+    private final AtomicInteger offMainThread = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mainThread = Executors.newSingleThreadExecutor(r -> new Thread(r, "Server thread"));
+        serverThread = mainThread.submit(Thread::currentThread).get();
+        asyncThreads = Executors.newScheduledThreadPool(2);
+        plugin = fakePlugin();
+        guild = new Guild("Confined", UUID.randomUUID(), 1, 0L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        asyncThreads.shutdownNow();
+        mainThread.shutdownNow();
+    }
+
+    @Test
+    void concurrentCommandsAndTicksKeepGuildStateConsistent() throws Exception {
+        OutpostScheduler outposts = new OutpostScheduler(plugin, this::runOutpost, 100);
+        outposts.start(1L);
+
+        List<Thread> commanders = new ArrayList<>();
+        for (int t = 0; t < COMMAND_THREADS; t++) {
+            int threadId = t;
+            commanders.add(new Thread(() -> {
+                for (int i = 0; i < COMMANDS_PER_THREAD; i++) {
+                    int step = i;
+                    plugin.getServer().getScheduler().runTask(plugin, () -> runCommand(outposts, threadId, step));
+                }
+            }, "Commander-" + t));
+        }
+        Thread upkeep = new Thread(() -> {
+            for (int i = 0; i < 500; i++) {
+                plugin.getServer().getScheduler().runTask(plugin, this::billUpkeep);
+                Thread.yield();
+            }
+        }, "Upkeep");
+
+        commanders.forEach(Thread::start);
+        upkeep.start();
+        for (Thread commander : commanders) commander.join();
+        upkeep.join();
+
+        outposts.stop();
+        asyncThreads.shutdown();
+        assertTrue(asyncThreads.awaitTermination(5, TimeUnit.SECONDS));
+        // Every hand-off has been queued by now, and the main thread runs them in order before this check
+        Future<?> check = mainThread.submit(() -> {
+            assertEquals(0, offMainThread.get(), "guild touched off the main thread");
+            assertEquals(xpIn - xpOut, lifetimeXp(guild));
+            assertEquals(expectedClaims, guild.getClaimedChunks());
+            for (OutpostType type : OutpostType.values()) {
+                assertEquals(expectedOutposts.contains(type), guild.hasOutpost(type), type.name());
+            }
+            assertEquals(expectedOutposts.size(), outposts.getScheduledCount());
+            assertTrue(outpostRuns > 0, "no outpost ever ran");
+            assertTrue(xpOut > 0, "no upkeep was ever paid");
+        });
+        check.get(5, TimeUnit.SECONDS);
+    }
+
+    // A mix of /guild claim, unclaim, contribute and outpost create/destroy
+    private void runCommand(OutpostScheduler outposts, int threadId, int step) {
+        checkMainThread();
+        String chunk = "world:" + threadId + ":" + step;
+        switch (step % 4) {
+            case 0 -> {
+                guild.addClaimedChunk("world", threadId, step);
+                expectedClaims.add(chunk);
+            }
+            case 1 -> {
+                String previous = "world:" + threadId + ":" + (step - 1);
+                if (ThreadLocalRandom.current().nextBoolean() && expectedClaims.remove(previous)) {
+                    guild.removeClaimedChunk("world", threadId, step - 1);
+                }
+            }
+            case 2 -> {
+                guild.addXp(COMMAND_XP);
+                xpIn += COMMAND_XP;
+            }
+            default -> {
+                OutpostType type = OutpostType.values()[(threadId + step) % OutpostType.values().length];
+                if (guild.hasOutpost(type)) {
+                    guild.removeOutpost(type);
+                    outposts.unregister(guild, type);
+                    expectedOutposts.remove(type);
+                } else {
+                    long now = System.currentTimeMillis();
+                    guild.addOutpost(type, new Guild.LocationData("world", threadId, 64, step), now);
+                    outposts.register(guild, type, now);
+                    expectedOutposts.add(type);
+                }
+            }
+        }
+    }
+
+    // Mirrors GuildManager.runOutpost: an outpost destroyed while its run was pending just stops
+    private long runOutpost(Guild target, OutpostType type, long now) {
+        checkMainThread();
+        if (!target.hasOutpost(type)) return 0;
+        target.addXp(OUTPOST_XP);
+        xpIn += OUTPOST_XP;
+        outpostRuns++;
+        long next = now + 1;
+        target.updateOutpostNextTick(type, next);
+        return next;
+    }
+
+    private void billUpkeep() {
+        checkMainThread();
+        long cost = guild.getClaimedChunks().size() * UPKEEP_PER_CHUNK;
+        if (cost > 0 && guild.payXpUpkeep(cost)) xpOut += cost;
+    }
+
+    private void checkMainThread() {
+        if (Thread.currentThread() != serverThread) offMainThread.incrementAndGet();
+    }
+
+    // XP spent on levels plus what is left over; upkeep only ever takes from the left-over part
+    private static long lifetimeXp(Guild guild) {
+        long total = guild.getCurrentXp();
+        for (long level = 1; level < guild.getLevel(); level++) total += 500L * level * level;
+        return total;
+    }
+
+    // Bukkit's scheduler, reduced to what OutpostScheduler and the test use; one tick is one millisecond here
+    private Plugin fakePlugin() {
+        BukkitScheduler scheduler = (BukkitScheduler) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{BukkitScheduler.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "runTask" -> task(mainThread.submit((Runnable) args[1]));
+                    case "runTaskAsynchronously" -> task(asyncThreads.submit((Runnable) args[1]));
+                    case "runTaskLaterAsynchronously" -> task(asyncThreads.schedule((Runnable) args[1], (Long) args[2], TimeUnit.MILLISECONDS));
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        Server server = (Server) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Server.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getScheduler")) return scheduler;
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        Logger logger = Logger.getLogger("GuildConfinementTest");
+        return (Plugin) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Plugin.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getServer" -> server;
+                    case "getLogger" -> logger;
+                    case "isEnabled" -> true;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static BukkitTask task(Future<?> future) {
+        return (BukkitTask) Proxy.newProxyInstance(BukkitTask.class.getClassLoader(), new Class<?>[]{BukkitTask.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "cancel" -> {
+                        future.cancel(false);
+                        yield null;
+                    }
+                    case "isCancelled" -> future.isCancelled();
+                    case "getTaskId" -> System.identityHashCode(future);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
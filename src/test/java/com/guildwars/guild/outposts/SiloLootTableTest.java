@@ -0,0 +1,135 @@
+package com.guildwars.guild.outposts;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SiloLootTableTest {
+
+    private final List<String> warnings = new ArrayList<>();
+    private final Logger logger = Logger.getAnonymousLogger();
+
+    @BeforeEach
+    void captureWarnings() {
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            public void publish(LogRecord record) { warnings.add(record.getMessage()); }
+            public void flush() {}
+            public void close() {}
+        });
+    }
+
+    private SiloLootTable compile(String yaml) {
+        ConfigurationSection section = YamlConfiguration.loadConfiguration(new StringReader(yaml));
+        return SiloLootTable.compile(section, logger, material -> true);
+    }
+
+    private static List<Material> materials(List<SiloLootTable.Entry> entries) {
+        List<Material> materials = new ArrayList<>();
+        for (SiloLootTable.Entry entry : entries) materials.add(entry.material());
+        return materials;
+    }
+
+    @Test
+    void sameGuildAndRunTimeRollTheSameLoot() {
+        SiloLootTable table = compile("""
+                picks: 3
+                generated-resources:
+                  STONE: { amount: "1-10", weight: 3 }
+                  COAL: { amount: "2-5", weight: 2 }
+                  DIAMOND: { amount: "1-2", weight: 1 }
+                """);
+        long seed = SiloLootTable.seedFor("Alpha", 1_700_000_000_000L);
+        assertEquals(seed, SiloLootTable.seedFor("Alpha", 1_700_000_000_000L));
+
+        for (int run = 0; run < 100; run++) {
+            long runSeed = SiloLootTable.seedFor("Alpha", 1_700_000_000_000L + run * 3_600_000L);
+            assertArrayEquals(table.rollAmounts(1, new SplittableRandom(runSeed)), table.rollAmounts(1, new SplittableRandom(runSeed)));
+        }
+    }
+
+    @Test
+    void weightedPicksAreRoughlyProportional() {
+        SiloLootTable table = compile("""
+                picks: 1
+                generated-resources:
+                  STONE: { amount: "1", weight: 6 }
+                  COAL: { amount: "1", weight: 3 }
+                  DIAMOND: { amount: "1", weight: 1 }
+                """);
+        int rolls = 100_000;
+        long[] counts = new long[3];
+        SplittableRandom rng = new SplittableRandom(42L);
+        for (int i = 0; i < rolls; i++) {
+            int[] amounts = table.rollAmounts(1, rng);
+            for (int e = 0; e < amounts.length; e++) counts[e] += amounts[e];
+        }
+        List<Material> order = materials(table.entriesFor(1));
+        assertEquals(0.6, counts[order.indexOf(Material.STONE)] / (double) rolls, 0.01);
+        assertEquals(0.3, counts[order.indexOf(Material.COAL)] / (double) rolls, 0.01);
+        assertEquals(0.1, counts[order.indexOf(Material.DIAMOND)] / (double) rolls, 0.01);
+    }
+
+    @Test
+    void rollsFromTheHighestTierTheGuildHasReached() {
+        SiloLootTable table = compile("""
+                generated-resources:
+                  STONE: "5-10"
+                tiers:
+                  10:
+                    generated-resources:
+                      DIAMOND: "1"
+                  5:
+                    generated-resources:
+                      IRON_ORE: "1-2"
+                """);
+        assertEquals(3, table.tierCount());
+        assertEquals(List.of(Material.STONE), materials(table.entriesFor(1)));
+        assertEquals(List.of(Material.STONE), materials(table.entriesFor(4)));
+        assertEquals(List.of(Material.IRON_ORE), materials(table.entriesFor(5)));
+        assertEquals(List.of(Material.IRON_ORE), materials(table.entriesFor(9)));
+        assertEquals(List.of(Material.DIAMOND), materials(table.entriesFor(10)));
+        assertEquals(List.of(Material.DIAMOND), materials(table.entriesFor(200)));
+    }
+
+    @Test
+    void invalidEntriesAreSkipped() {
+        SiloLootTable table = compile("""
+                generated-resources:
+                  STONE: "5-10"
+                  NOT_A_MATERIAL: "1-2"
+                  COAL: "lots"
+                  IRON_ORE: { amount: "1-2", weight: 0 }
+                  DIAMOND: "0-0"
+                tiers:
+                  high:
+                    generated-resources:
+                      DIAMOND: "1"
+                """);
+        assertEquals(1, table.tierCount());
+        List<SiloLootTable.Entry> entries = table.entriesFor(1);
+        assertEquals(List.of(Material.STONE, Material.DIAMOND), materials(entries));
+        // Amounts below one are raised to one rather than dropped
+        assertEquals(1, entries.get(1).minAmount());
+        assertEquals(1, entries.get(1).maxAmount());
+        assertEquals(4, warnings.size());
+        assertTrue(warnings.stream().anyMatch(w -> w.contains("NOT_A_MATERIAL")));
+        assertTrue(warnings.stream().anyMatch(w -> w.contains("'lots'")));
+        assertTrue(warnings.stream().anyMatch(w -> w.contains("weight for IRON_ORE")));
+        assertTrue(warnings.stream().anyMatch(w -> w.contains("tier 'high'")));
+    }
+}
@@ -0,0 +1,137 @@
+package com.guildwars.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rough ops/sec of the old access pattern (open a connection, prepare, run, close, on every call) against the pooled
+ * path (borrowed tuned connection, cached statement). Prints both so the numbers can be compared across changes;
+ * only asserts that pooling is not slower, since absolute timings depend on the machine.
+ */
+class ConnectionPoolBenchmarkTest {
+
+    private static final int ROWS = 1000;
+    private static final int WARMUP_OPS = 200;
+    private static final int READ_OPS = 2000;
+    private static final int WRITE_OPS = 300;
+    private static final String SELECT = "SELECT current_xp FROM guilds WHERE name = ?";
+    private static final String UPDATE = "UPDATE guilds SET current_xp = current_xp + 1 WHERE name = ?";
+
+    @TempDir
+    Path dir;
+
+    private String url;
+    private SqliteConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        url = "jdbc:sqlite:" + dir.resolve("bench.db");
+        pool = new SqliteConnectionPool(url, Logger.getLogger("bench"), 2, 64L * 1024 * 1024, 8192, 5000);
+        try (CachedConnection conn = pool.openWriter(); Statement stmt = conn.raw().createStatement()) {
+            stmt.execute("CREATE TABLE guilds (name TEXT PRIMARY KEY, current_xp BIGINT NOT NULL)");
+            conn.raw().setAutoCommit(false);
+            PreparedStatement insert = conn.prepare("INSERT INTO guilds(name, current_xp) VALUES(?, 0)");
+            for (int i = 0; i < ROWS; i++) {
+                insert.setString(1, "guild" + i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            conn.raw().commit();
+            conn.raw().setAutoCommit(true);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void pooledReadsOutpaceOpenPerCall() throws SQLException {
+        for (int i = 0; i < WARMUP_OPS; i++) {
+            readOpenPerCall(i);
+            readPooled(i);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < READ_OPS; i++) readOpenPerCall(i);
+        double openPerCall = opsPerSecond(READ_OPS, start);
+        start = System.nanoTime();
+        for (int i = 0; i < READ_OPS; i++) readPooled(i);
+        double pooled = opsPerSecond(READ_OPS, start);
+
+        report("reads", openPerCall, pooled);
+        assertTrue(pooled > openPerCall, "pooled reads should beat opening a connection per call");
+    }
+
+    @Test
+    void cachedWriterOutpacesOpenPerCall() throws SQLException {
+        long start = System.nanoTime();
+        for (int i = 0; i < WRITE_OPS; i++) writeOpenPerCall(i);
+        double openPerCall = opsPerSecond(WRITE_OPS, start);
+        try (CachedConnection writer = pool.openWriter()) {
+            start = System.nanoTime();
+            for (int i = 0; i < WRITE_OPS; i++) {
+                PreparedStatement pstmt = writer.prepare(UPDATE);
+                pstmt.setString(1, "guild" + (i % ROWS));
+                pstmt.executeUpdate();
+            }
+        }
+        double pooled = opsPerSecond(WRITE_OPS, start);
+
+        report("writes", openPerCall, pooled);
+        try (CachedConnection conn = pool.reader(); ResultSet rs = conn.raw().createStatement().executeQuery("SELECT SUM(current_xp) FROM guilds")) {
+            rs.next();
+            assertEquals(2L * WRITE_OPS, rs.getLong(1));
+        }
+        assertTrue(pooled > openPerCall, "the long-lived writer should beat opening a connection per call");
+    }
+
+    // What DatabaseManager did before the pool: a fresh, untuned connection and statement for every call
+    private long readOpenPerCall(int i) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url); PreparedStatement pstmt = conn.prepareStatement(SELECT)) {
+            pstmt.setString(1, "guild" + (i % ROWS));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : -1;
+            }
+        }
+    }
+
+    private long readPooled(int i) throws SQLException {
+        try (CachedConnection conn = pool.reader()) {
+            PreparedStatement pstmt = conn.prepare(SELECT);
+            pstmt.setString(1, "guild" + (i % ROWS));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : -1;
+            }
+        }
+    }
+
+    private void writeOpenPerCall(int i) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url); PreparedStatement pstmt = conn.prepareStatement(UPDATE)) {
+            pstmt.setString(1, "guild" + (i % ROWS));
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static double opsPerSecond(int ops, long startNanos) {
+        return ops / ((System.nanoTime() - startNanos) / 1_000_000_000.0);
+    }
+
+    private static void report(String what, double openPerCall, double pooled) {
+        System.out.printf("SQLite %s: open-per-call %.0f ops/s, pooled %.0f ops/s (%.1fx)%n", what, openPerCall, pooled, pooled / openPerCall);
+    }
+}
@@ -0,0 +1,116 @@
+package com.guildwars.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindQueueTest {
+
+    @TempDir
+    Path dir;
+
+    private SqliteConnectionPool pool;
+    private WriteBehindQueue queue;
+
+    // Cut-down guilds table; guild_claims is the real one, whose foreign key is what makes write order matter
+    private record InsertGuild(String name) implements WriteOperation {
+        public Object coalesceKey() { return null; }
+        public void apply(CachedConnection conn, Logger log) throws SQLException {
+            PreparedStatement pstmt = conn.prepare("INSERT INTO guilds(name) VALUES(?)");
+            pstmt.setString(1, name);
+            pstmt.executeUpdate();
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = new SqliteConnectionPool("jdbc:sqlite:" + dir.resolve("test.db"), Logger.getLogger("test"), 1, 0, 1024, 1000);
+        try (CachedConnection conn = pool.openWriter(); Statement stmt = conn.raw().createStatement()) {
+            stmt.execute("CREATE TABLE guilds (name TEXT PRIMARY KEY)");
+            stmt.execute("CREATE TABLE guild_claims (guild_name TEXT NOT NULL, world_name TEXT NOT NULL, chunk_x INTEGER NOT NULL, "
+                    + "chunk_z INTEGER NOT NULL, PRIMARY KEY (world_name, chunk_x, chunk_z), "
+                    + "FOREIGN KEY (guild_name) REFERENCES guilds(name) ON DELETE CASCADE)");
+        }
+        queue = new WriteBehindQueue(Logger.getLogger("test"), pool::openWriter, 0L, 100, 0);
+    }
+
+    private String claimOwner(String world, int chunkX, int chunkZ) throws SQLException {
+        try (CachedConnection conn = pool.openWriter()) {
+            PreparedStatement pstmt = conn.prepare("SELECT guild_name FROM guild_claims WHERE world_name = ? AND chunk_x = ? AND chunk_z = ?");
+            pstmt.setString(1, world);
+            pstmt.setInt(2, chunkX);
+            pstmt.setInt(3, chunkZ);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                assertTrue(rs.next());
+                return rs.getString("guild_name");
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void coalescedWriteLandsAfterTheWritesItDependsOn() throws SQLException {
+        // Queued before the writer starts, so all of it is one batch
+        queue.enqueue(new InsertGuild("A"));
+        queue.enqueue(new DatabaseManager.InsertClaim("A", "world", 3, 4));
+        queue.enqueue(new DatabaseManager.DeleteClaim("world", 3, 4));
+        queue.enqueue(new InsertGuild("B"));
+        queue.enqueue(new DatabaseManager.InsertClaim("B", "world", 3, 4)); // Same key as A's claim, but needs B's row to exist first
+        queue.start();
+        queue.shutdown(1000L);
+
+        assertEquals(0, queue.getMetrics().dropped());
+        assertEquals(0, queue.getMetrics().failedBatches());
+        assertEquals("B", claimOwner("world", 3, 4));
+    }
+
+    @Test
+    void claimByAnotherGuildReplacesACommittedClaim() throws SQLException {
+        queue.enqueue(new InsertGuild("A"));
+        queue.enqueue(new InsertGuild("B"));
+        queue.enqueue(new DatabaseManager.InsertClaim("A", "world", 3, 4));
+        queue.start();
+        queue.shutdown(1000L); // A's claim is now committed
+
+        // A unclaims and B claims the chunk within one flush window: only B's insert is left to run
+        WriteBehindQueue next = new WriteBehindQueue(Logger.getLogger("test"), pool::openWriter, 0L, 100, 0);
+        next.enqueue(new DatabaseManager.DeleteClaim("world", 3, 4));
+        next.enqueue(new DatabaseManager.InsertClaim("B", "world", 3, 4));
+        next.start();
+        next.shutdown(1000L);
+
+        assertEquals(1, next.getMetrics().coalesced());
+        assertEquals(0, next.getMetrics().failedBatches());
+        assertEquals("B", claimOwner("world", 3, 4));
+    }
+
+    @Test
+    void writeAfterShutdownIsStillApplied() throws SQLException {
+        queue.start();
+        queue.enqueue(new InsertGuild("A"));
+        queue.shutdown(1000L);
+        queue.enqueue(new InsertGuild("B"));
+
+        try (CachedConnection conn = pool.openWriter();
+             ResultSet rs = conn.raw().createStatement().executeQuery("SELECT COUNT(*) FROM guilds")) {
+            rs.next();
+            assertEquals(2, rs.getInt(1));
+        }
+        assertEquals(0, queue.getMetrics().dropped());
+    }
+}